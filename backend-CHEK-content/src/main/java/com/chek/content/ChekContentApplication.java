@@ -2,11 +2,12 @@ package com.chek.content;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChekContentApplication {
   public static void main(String[] args) {
     SpringApplication.run(ChekContentApplication.class, args);
   }
 }
-
@@ -2,32 +2,120 @@ package com.chek.content.api;
 
 import com.chek.content.model.ResponseData;
 import com.chek.content.model.post.IngestExternalPostRequest;
-import com.chek.content.model.post.PostDTO;
+import com.chek.content.model.post.IngestTicketDTO;
 import com.chek.content.repo.PostRepository;
+import com.chek.content.service.ExternalPostBulkIngestService;
+import com.chek.content.service.ExternalPostIngestQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @RequestMapping("/v1/ingest")
 public class IngestController {
   private final PostRepository postRepository;
+  private final ExternalPostBulkIngestService bulkIngestService;
+  private final ExternalPostIngestQueue ingestQueue;
+  private final ObjectMapper objectMapper;
   private final String ingestToken;
 
   public IngestController(
-      PostRepository postRepository, @Value("${CHEK_INGEST_TOKEN:}") String ingestToken) {
+      PostRepository postRepository,
+      ExternalPostBulkIngestService bulkIngestService,
+      ExternalPostIngestQueue ingestQueue,
+      ObjectMapper objectMapper,
+      @Value("${CHEK_INGEST_TOKEN:}") String ingestToken) {
     this.postRepository = postRepository;
+    this.bulkIngestService = bulkIngestService;
+    this.ingestQueue = ingestQueue;
+    this.objectMapper = objectMapper;
     this.ingestToken = ingestToken == null ? "" : ingestToken.trim();
   }
 
+  // async=true (with CHEK_INGEST_QUEUE_ENABLED): 202 with an IngestTicketDTO to poll at
+  // /tickets/{ticketId}, or 429 + Retry-After when the queue is full. Otherwise synchronous.
   @PostMapping("/externalPosts:upsert")
-  public ResponseData<PostDTO> upsertExternalPost(
+  public ResponseData<?> upsertExternalPost(
       @RequestHeader(name = "X-Ingest-Token", required = false) String token,
-      @Valid @RequestBody IngestExternalPostRequest req) {
+      @RequestParam(name = "async", defaultValue = "false") boolean async,
+      @Valid @RequestBody IngestExternalPostRequest req,
+      HttpServletResponse response) {
+    ResponseData<Void> denied = checkToken(token);
+    if (denied != null) return denied;
+    if (async && ingestQueue.isEnabled()) {
+      IngestTicketDTO ticket = ingestQueue.submit(req);
+      if (ticket == null && !ingestQueue.isRunning()) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ingestQueue.retryAfterSeconds()));
+        return ResponseData.error("SERVICE_UNAVAILABLE", "ingest queue not running");
+      }
+      if (ticket == null) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ingestQueue.retryAfterSeconds()));
+        return ResponseData.error("TOO_MANY_REQUESTS", "ingest queue full");
+      }
+      response.setStatus(HttpStatus.ACCEPTED.value());
+      return ResponseData.ok(ticket);
+    }
+    try {
+      PostRepository.UpsertResult result = postRepository.upsertExternal(req);
+      response.setHeader("X-Ingest-Status", result.status);
+      return ResponseData.ok(result.post);
+    } catch (IllegalArgumentException e) {
+      return ResponseData.error("BAD_REQUEST", e.getMessage());
+    }
+  }
+
+  @GetMapping("/tickets/{ticketId}")
+  public ResponseData<IngestTicketDTO> getTicket(
+      @RequestHeader(name = "X-Ingest-Token", required = false) String token,
+      @PathVariable String ticketId) {
+    ResponseData<IngestTicketDTO> denied = checkToken(token);
+    if (denied != null) return denied;
+    IngestTicketDTO ticket = ingestQueue.status(ticketId);
+    if (ticket == null) return ResponseData.error("NOT_FOUND", "ticket not found");
+    return ResponseData.ok(ticket);
+  }
+
+  // Body: NDJSON of IngestExternalPostRequest, optionally gzip-compressed (Content-Encoding: gzip or
+  // a gzip stream). Response: NDJSON, one IngestBulkResult per non-blank input line, streamed as
+  // each chunk commits.
+  @PostMapping("/externalPosts:bulkUpsert")
+  public void bulkUpsertExternalPosts(
+      @RequestHeader(name = "X-Ingest-Token", required = false) String token,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+    ResponseData<Void> denied = checkToken(token);
+    if (denied != null) {
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      objectMapper.writeValue(response.getOutputStream(), denied);
+      return;
+    }
+
+    response.setContentType("application/x-ndjson");
+    response.setCharacterEncoding("UTF-8");
+    bulkIngestService.ingest(maybeGunzip(request.getInputStream()), response.getOutputStream());
+  }
+
+  private <T> ResponseData<T> checkToken(String token) {
     if (ingestToken.isBlank()) {
       return ResponseData.error("INGEST_DISABLED", "CHEK_INGEST_TOKEN not configured");
     }
@@ -35,11 +123,14 @@ public class IngestController {
     if (t.isBlank() || !t.equals(ingestToken)) {
       return ResponseData.error("UNAUTHORIZED", "invalid X-Ingest-Token");
     }
-    try {
-      return ResponseData.ok(postRepository.upsertExternal(req));
-    } catch (IllegalArgumentException e) {
-      return ResponseData.error("BAD_REQUEST", e.getMessage());
-    }
+    return null;
   }
-}
 
+  private static InputStream maybeGunzip(InputStream in) throws IOException {
+    PushbackInputStream pb = new PushbackInputStream(in, 2);
+    byte[] magic = pb.readNBytes(2);
+    if (magic.length > 0) pb.unread(magic);
+    boolean gzip = magic.length == 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b;
+    return gzip ? new GZIPInputStream(pb, 64 * 1024) : pb;
+  }
+}
@@ -2,12 +2,16 @@ package com.chek.content.api;
 
 import com.chek.content.model.ResponseData;
 import com.chek.content.model.comment.CommentDTO;
+import com.chek.content.model.comment.CommentTreeDTO;
 import com.chek.content.model.comment.CreateCommentRequest;
 import com.chek.content.model.post.CreatePostRequest;
 import com.chek.content.model.post.PostDTO;
+import com.chek.content.repo.EntityVersion;
 import com.chek.content.repo.PostRepository;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.util.List;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,6 +21,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping("/v1")
@@ -31,26 +36,91 @@ public class PostController {
   public ResponseData<List<PostDTO>> listPosts(
       @RequestParam(name = "query", required = false) String query,
       @RequestParam(name = "tags", required = false) List<String> tags,
+      @RequestParam(name = "tagsMode", required = false, defaultValue = "any") String tagsMode,
       @RequestParam(name = "authorUserOneId", required = false) String authorUserOneId,
       @RequestHeader(name = "X-User-One-Id", required = false) String viewerUserOneId,
-      @RequestParam(name = "cursor", required = false) Long cursor,
-      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit) {
-    return ResponseData.ok(postRepository.list(query, tags, authorUserOneId, viewerUserOneId, cursor, limit));
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit,
+      @RequestParam(name = "fields", required = false, defaultValue = "full") String fields,
+      HttpServletResponse response) {
+    if (!tagsMode.equalsIgnoreCase("any") && !tagsMode.equalsIgnoreCase("all")) {
+      return ResponseData.error("BAD_REQUEST", "tagsMode must be all or any");
+    }
+    if (!fields.equalsIgnoreCase("full") && !fields.equalsIgnoreCase("summary")) {
+      return ResponseData.error("BAD_REQUEST", "fields must be full or summary");
+    }
+    boolean matchAllTags = tagsMode.equalsIgnoreCase("all");
+    boolean summary = fields.equalsIgnoreCase("summary");
+    PostRepository.PostPage page;
+    try {
+      page =
+          postRepository.list(
+              query, tags, matchAllTags, authorUserOneId, viewerUserOneId, cursor, limit, summary);
+    } catch (IllegalArgumentException e) {
+      return ResponseData.error("BAD_REQUEST", e.getMessage());
+    }
+    if (page.nextCursor != null) response.setHeader("X-Next-Cursor", page.nextCursor);
+    if (page.truncated) response.setHeader("X-Search-Truncated", "true");
+    return ResponseData.ok(page.items);
+  }
+
+  @GetMapping("/posts:nearby")
+  public ResponseData<List<PostDTO>> listNearbyPosts(
+      @RequestParam(name = "lat") double lat,
+      @RequestParam(name = "lng") double lng,
+      @RequestParam(name = "radiusKm", required = false, defaultValue = "5") double radiusKm,
+      @RequestHeader(name = "X-User-One-Id", required = false) String viewerUserOneId,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit,
+      @RequestParam(name = "fields", required = false, defaultValue = "full") String fields,
+      HttpServletResponse response) {
+    if (!(lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180)) {
+      return ResponseData.error("BAD_REQUEST", "lat/lng out of range");
+    }
+    if (!(radiusKm > 0 && radiusKm <= 50)) {
+      return ResponseData.error("BAD_REQUEST", "radiusKm must be in (0, 50]");
+    }
+    if (!fields.equalsIgnoreCase("full") && !fields.equalsIgnoreCase("summary")) {
+      return ResponseData.error("BAD_REQUEST", "fields must be full or summary");
+    }
+    PostRepository.PostPage page;
+    try {
+      page = postRepository.listNearby(
+              lat, lng, radiusKm, viewerUserOneId, cursor, limit, fields.equalsIgnoreCase("summary"));
+    } catch (IllegalArgumentException e) {
+      return ResponseData.error("BAD_REQUEST", e.getMessage());
+    }
+    if (page.nextCursor != null) response.setHeader("X-Next-Cursor", page.nextCursor);
+    return ResponseData.ok(page.items);
   }
 
   @GetMapping("/posts/{id}")
   public ResponseData<PostDTO> getPost(
       @PathVariable("id") long postId,
       @RequestHeader(name = "X-User-One-Id", required = false) String userOneId,
-      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader) {
-    PostDTO dto = postRepository.get(postId, userOneId);
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
+    boolean hasViewer = userOneId != null && !userOneId.isBlank();
+
+    // Validate against the cheap version row first; a matching If-None-Match / If-Modified-Since
+    // gets a 304 without loading the post.
+    EntityVersion version = postRepository.version(postId, userOneId);
+    if (version == null) return ResponseData.error("NOT_FOUND", "post not found");
+    boolean isAuthor = hasViewer && userOneId.equals(version.authorUserOneId);
+    if (version.visible || isAdmin || isAuthor) {
+      response.setHeader(HttpHeaders.VARY, "X-User-One-Id, X-Is-Admin");
+      response.setHeader(HttpHeaders.CACHE_CONTROL, hasViewer || !version.visible ? "private, no-cache" : "no-cache");
+      if (webRequest.checkNotModified(version.etag, version.lastModified)) return null;
+    }
+
+    PostDTO dto = postRepository.getCached(postId, userOneId);
     if (dto == null) return ResponseData.error("NOT_FOUND", "post not found");
 
     if (dto.isPublic() && dto.isIndexable()) return ResponseData.ok(dto);
 
-    boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
-    boolean isAuthor =
-        userOneId != null && !userOneId.isBlank() && userOneId.equals(dto.getAuthorUserOneId());
+    isAuthor = hasViewer && userOneId.equals(dto.getAuthorUserOneId());
     if (isAdmin || isAuthor) return ResponseData.ok(dto);
     return ResponseData.error("NOT_FOUND", "post not found");
   }
@@ -104,6 +174,33 @@ public class PostController {
     return ResponseData.ok(postRepository.listComments(postId, cursor, limit));
   }
 
+  @GetMapping("/posts/{id}/comments:tree")
+  public ResponseData<CommentTreeDTO> listCommentTree(
+      @PathVariable("id") long postId,
+      @RequestHeader(name = "X-User-One-Id", required = false) String userOneId,
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      @RequestParam(name = "parentCommentId", required = false) Long parentCommentId,
+      @RequestParam(name = "cursor", required = false) Long cursor,
+      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit,
+      @RequestParam(name = "replyLimit", required = false, defaultValue = "3") int replyLimit) {
+    PostDTO post = postRepository.get(postId);
+    if (post == null) return ResponseData.error("NOT_FOUND", "post not found");
+
+    if (!(post.isPublic() && post.isIndexable())) {
+      boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
+      boolean isAuthor =
+          userOneId != null
+              && !userOneId.isBlank()
+              && userOneId.equals(post.getAuthorUserOneId());
+      if (!(isAdmin || isAuthor)) {
+        return ResponseData.error("NOT_FOUND", "post not found");
+      }
+    }
+
+    return ResponseData.ok(
+        postRepository.listCommentTree(postId, parentCommentId, cursor, limit, replyLimit));
+  }
+
   @PostMapping("/posts/{id}/comments")
   public ResponseData<CommentDTO> createComment(
       @PathVariable("id") long postId,
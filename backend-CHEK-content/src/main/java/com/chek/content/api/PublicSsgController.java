@@ -2,30 +2,70 @@ package com.chek.content.api;
 
 import com.chek.content.model.ResponseData;
 import com.chek.content.model.post.PostDTO;
+import com.chek.content.model.ssg.ChangeLogPageDTO;
+import com.chek.content.model.ssg.SnapshotManifestDTO;
 import com.chek.content.model.tag.TagDTO;
 import com.chek.content.model.wiki.WikiEntryDTO;
+import com.chek.content.repo.ChangeLogRepository;
 import com.chek.content.repo.PostRepository;
+import com.chek.content.repo.SsgExportRepository;
 import com.chek.content.repo.TagRepository;
 import com.chek.content.repo.WikiRepository;
+import com.chek.content.service.SsgSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping("/v1/public/ssg")
 public class PublicSsgController {
+  private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+
   private final WikiRepository wikiRepository;
   private final PostRepository postRepository;
   private final TagRepository tagRepository;
+  private final SsgExportRepository ssgExportRepository;
+  private final ChangeLogRepository changeLogRepository;
+  private final SsgSnapshotService snapshotService;
+  private final ObjectMapper objectMapper;
 
   public PublicSsgController(
-      WikiRepository wikiRepository, PostRepository postRepository, TagRepository tagRepository) {
+      WikiRepository wikiRepository,
+      PostRepository postRepository,
+      TagRepository tagRepository,
+      SsgExportRepository ssgExportRepository,
+      ChangeLogRepository changeLogRepository,
+      SsgSnapshotService snapshotService,
+      ObjectMapper objectMapper) {
     this.wikiRepository = wikiRepository;
     this.postRepository = postRepository;
     this.tagRepository = tagRepository;
+    this.ssgExportRepository = ssgExportRepository;
+    this.changeLogRepository = changeLogRepository;
+    this.snapshotService = snapshotService;
+    this.objectMapper = objectMapper;
   }
 
   @GetMapping("/wiki")
@@ -44,6 +84,82 @@ public class PublicSsgController {
     return ResponseData.ok(postRepository.listPublicForSsg(updatedAfter, cursor, limit));
   }
 
+  // NDJSON of every public WikiEntryDTO (with body), ascending by id, in one response. Resume with
+  // afterId = the last entryId received. gzip when the client accepts it.
+  @GetMapping("/wiki:stream")
+  public void streamWiki(
+      @RequestParam(name = "updatedAfter", required = false) Instant updatedAfter,
+      @RequestParam(name = "afterId", required = false, defaultValue = "0") long afterId,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+    try (OutputStream out = ndjson(request, response)) {
+      ssgExportRepository.streamWiki(updatedAfter, afterId, batch -> writeLines(out, batch));
+    }
+  }
+
+  @GetMapping("/posts:stream")
+  public void streamPosts(
+      @RequestParam(name = "updatedAfter", required = false) Instant updatedAfter,
+      @RequestParam(name = "afterId", required = false, defaultValue = "0") long afterId,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+    try (OutputStream out = ndjson(request, response)) {
+      ssgExportRepository.streamPosts(updatedAfter, afterId, batch -> writeLines(out, batch));
+    }
+  }
+
+  // Every post/wiki change with seq > sinceSeq, oldest first. Poll with sinceSeq = nextSeq.
+  @GetMapping("/changes")
+  public ResponseData<ChangeLogPageDTO> listChanges(
+      @RequestParam(name = "sinceSeq", required = false, defaultValue = "0") long sinceSeq,
+      @RequestParam(name = "limit", required = false, defaultValue = "1000") int limit) {
+    return ResponseData.ok(changeLogRepository.listSince(sinceSeq, limit));
+  }
+
+  // Manifest of the latest on-disk snapshot (CHEK_SSG_SNAPSHOT_ENABLED); ETag is its SHA-256.
+  @GetMapping("/snapshot/manifest")
+  public ResponseData<SnapshotManifestDTO> snapshotManifest(ServletWebRequest webRequest) {
+    SsgSnapshotService.Snapshot snapshot = snapshotService.current();
+    if (snapshot == null) return ResponseData.error("NOT_FOUND", "no snapshot available");
+    webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+    if (webRequest.checkNotModified("\"" + snapshot.sha256 + "\"")) return null;
+    return ResponseData.ok(snapshot.manifest);
+  }
+
+  // A content-addressed snapshot file: immutable, so cacheable forever. Sent with sendfile when
+  // the connector supports it, else with FileChannel.transferTo.
+  @GetMapping("/snapshot/files/{file:.+}")
+  public void snapshotFile(@PathVariable String file, ServletWebRequest webRequest) throws IOException {
+    HttpServletRequest request = webRequest.getRequest();
+    HttpServletResponse response = webRequest.getResponse();
+    Path path = snapshotService.resolveFile(file);
+    if (path == null) {
+      response.setStatus(HttpStatus.NOT_FOUND.value());
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      objectMapper.writeValue(response.getOutputStream(), ResponseData.error("NOT_FOUND", "snapshot file not found"));
+      return;
+    }
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+    if (webRequest.checkNotModified("\"" + SsgSnapshotService.sha256Of(file) + "\"")) return;
+
+    long size = Files.size(path);
+    response.setContentType(file.endsWith(".gz") ? "application/gzip" : MediaType.APPLICATION_JSON_VALUE);
+    response.setContentLengthLong(size);
+    if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+      request.setAttribute("org.apache.tomcat.sendfile.filename", path.toString());
+      request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+      request.setAttribute("org.apache.tomcat.sendfile.end", size);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long pos = 0;
+      while (pos < size) pos += channel.transferTo(pos, size - pos, out);
+    }
+  }
+
   @GetMapping("/tags")
   public ResponseData<List<TagDTO>> listTags(
       @RequestParam(name = "updatedAfter", required = false) Instant updatedAfter,
@@ -51,5 +167,27 @@ public class PublicSsgController {
       @RequestParam(name = "limit", required = false, defaultValue = "500") int limit) {
     return ResponseData.ok(tagRepository.listForSsg(updatedAfter, cursor, limit));
   }
+
+  private static OutputStream ndjson(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    response.setContentType("application/x-ndjson");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (accept != null && accept.toLowerCase(Locale.ROOT).contains("gzip")) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+      // syncFlush so each batch reaches the client as it is written.
+      return new GZIPOutputStream(response.getOutputStream(), STREAM_BUFFER_BYTES, true);
+    }
+    return new BufferedOutputStream(response.getOutputStream(), STREAM_BUFFER_BYTES);
+  }
+
+  private void writeLines(OutputStream out, List<?> batch) throws IOException {
+    for (Object dto : batch) {
+      out.write(objectMapper.writeValueAsBytes(dto));
+      out.write('\n');
+    }
+    out.flush();
+  }
 }
 
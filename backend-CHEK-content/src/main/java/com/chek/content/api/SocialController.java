@@ -3,9 +3,12 @@ package com.chek.content.api;
 import com.chek.content.model.ResponseData;
 import com.chek.content.model.post.PostDTO;
 import com.chek.content.model.social.FollowStatusDTO;
+import com.chek.content.model.social.PostSocialStateDTO;
 import com.chek.content.repo.PostRepository;
 import com.chek.content.repo.SocialRepository;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.function.BiFunction;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -33,8 +36,7 @@ public class SocialController {
     if (userOneId == null || userOneId.isBlank()) {
       return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
     }
-    PostDTO post = postRepository.get(postId, userOneId);
-    if (post == null || !(post.isPublic() && post.isIndexable())) {
+    if (!socialRepository.isPostVisible(postId)) {
       return ResponseData.error("NOT_FOUND", "post not found");
     }
 
@@ -49,8 +51,7 @@ public class SocialController {
     if (userOneId == null || userOneId.isBlank()) {
       return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
     }
-    PostDTO post = postRepository.get(postId, userOneId);
-    if (post == null || !(post.isPublic() && post.isIndexable())) {
+    if (!socialRepository.isPostVisible(postId)) {
       return ResponseData.error("NOT_FOUND", "post not found");
     }
 
@@ -65,8 +66,7 @@ public class SocialController {
     if (userOneId == null || userOneId.isBlank()) {
       return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
     }
-    PostDTO post = postRepository.get(postId, userOneId);
-    if (post == null || !(post.isPublic() && post.isIndexable())) {
+    if (!socialRepository.isPostVisible(postId)) {
       return ResponseData.error("NOT_FOUND", "post not found");
     }
 
@@ -81,8 +81,7 @@ public class SocialController {
     if (userOneId == null || userOneId.isBlank()) {
       return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
     }
-    PostDTO post = postRepository.get(postId, userOneId);
-    if (post == null || !(post.isPublic() && post.isIndexable())) {
+    if (!socialRepository.isPostVisible(postId)) {
       return ResponseData.error("NOT_FOUND", "post not found");
     }
 
@@ -90,15 +89,53 @@ public class SocialController {
     return ResponseData.ok(postRepository.get(postId, userOneId));
   }
 
+  // Compact variants of the four endpoints above: same writes, but the response is only the
+  // viewer's flags and the counters instead of a re-hydrated post.
+  @PostMapping("/posts/{id}:like")
+  public ResponseData<PostSocialStateDTO> likePostState(
+      @PathVariable("id") long postId,
+      @RequestHeader(name = "X-User-One-Id", required = false) String userOneId) {
+    return toggle(postId, userOneId, socialRepository::likePost);
+  }
+
+  @PostMapping("/posts/{id}:unlike")
+  public ResponseData<PostSocialStateDTO> unlikePostState(
+      @PathVariable("id") long postId,
+      @RequestHeader(name = "X-User-One-Id", required = false) String userOneId) {
+    return toggle(postId, userOneId, socialRepository::unlikePost);
+  }
+
+  @PostMapping("/posts/{id}:favorite")
+  public ResponseData<PostSocialStateDTO> favoritePostState(
+      @PathVariable("id") long postId,
+      @RequestHeader(name = "X-User-One-Id", required = false) String userOneId) {
+    return toggle(postId, userOneId, socialRepository::favoritePost);
+  }
+
+  @PostMapping("/posts/{id}:unfavorite")
+  public ResponseData<PostSocialStateDTO> unfavoritePostState(
+      @PathVariable("id") long postId,
+      @RequestHeader(name = "X-User-One-Id", required = false) String userOneId) {
+    return toggle(postId, userOneId, socialRepository::unfavoritePost);
+  }
+
   @GetMapping("/me/favorites")
   public ResponseData<List<PostDTO>> listMyFavorites(
       @RequestHeader(name = "X-User-One-Id", required = false) String userOneId,
-      @RequestParam(name = "cursor", required = false) Long cursor,
-      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit) {
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit,
+      HttpServletResponse response) {
     if (userOneId == null || userOneId.isBlank()) {
       return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
     }
-    return ResponseData.ok(postRepository.listFavorites(userOneId, cursor, limit));
+    PostRepository.PostPage page;
+    try {
+      page = postRepository.listFavorites(userOneId, cursor, limit);
+    } catch (IllegalArgumentException e) {
+      return ResponseData.error("BAD_REQUEST", e.getMessage());
+    }
+    if (page.nextCursor != null) response.setHeader("X-Next-Cursor", page.nextCursor);
+    return ResponseData.ok(page.items);
   }
 
   @GetMapping("/users/{userOneId}/followStatus")
@@ -133,5 +170,19 @@ public class SocialController {
     boolean ok = socialRepository.unfollowUser(viewerUserOneId, targetUserOneId);
     return ResponseData.ok(ok);
   }
-}
 
+  private ResponseData<PostSocialStateDTO> toggle(
+      long postId, String userOneId, BiFunction<Long, String, Boolean> write) {
+    if (userOneId == null || userOneId.isBlank()) {
+      return ResponseData.error("UNAUTHORIZED", "missing X-User-One-Id");
+    }
+    if (!socialRepository.isPostVisible(postId)) {
+      return ResponseData.error("NOT_FOUND", "post not found");
+    }
+    String viewer = userOneId.trim();
+    write.apply(postId, viewer);
+    PostSocialStateDTO state = socialRepository.postState(postId, viewer);
+    if (state == null) return ResponseData.error("NOT_FOUND", "post not found");
+    return ResponseData.ok(state);
+  }
+}
@@ -3,9 +3,14 @@ package com.chek.content.api;
 import com.chek.content.model.ResponseData;
 import com.chek.content.model.wiki.CreateWikiEntryRequest;
 import com.chek.content.model.wiki.WikiEntryDTO;
+import com.chek.content.model.wiki.WikiSectionContentDTO;
+import com.chek.content.model.wiki.WikiSectionDTO;
+import com.chek.content.repo.EntityVersion;
 import com.chek.content.repo.WikiRepository;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.util.List;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,6 +20,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping("/v1/wiki")
@@ -29,38 +35,164 @@ public class WikiController {
   public ResponseData<List<WikiEntryDTO>> listEntries(
       @RequestParam(name = "query", required = false) String query,
       @RequestParam(name = "tags", required = false) List<String> tags,
-      @RequestParam(name = "cursor", required = false) Long cursor,
-      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit) {
-    return ResponseData.ok(wikiRepository.list(query, tags, cursor, limit));
+      @RequestParam(name = "tagsMode", required = false, defaultValue = "any") String tagsMode,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", required = false, defaultValue = "20") int limit,
+      HttpServletResponse response) {
+    if (!tagsMode.equalsIgnoreCase("any") && !tagsMode.equalsIgnoreCase("all")) {
+      return ResponseData.error("BAD_REQUEST", "tagsMode must be all or any");
+    }
+    boolean matchAllTags = tagsMode.equalsIgnoreCase("all");
+    WikiRepository.WikiPage page;
+    try {
+      page = wikiRepository.list(query, tags, matchAllTags, cursor, limit);
+    } catch (IllegalArgumentException e) {
+      return ResponseData.error("BAD_REQUEST", e.getMessage());
+    }
+    if (page.nextCursor != null) response.setHeader("X-Next-Cursor", page.nextCursor);
+    if (page.truncated) response.setHeader("X-Search-Truncated", "true");
+    return ResponseData.ok(page.items);
   }
 
   @GetMapping("/entries/bySlug/{slug}")
   public ResponseData<WikiEntryDTO> getEntryBySlug(
       @PathVariable("slug") String slug,
-      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader) {
+      @RequestParam(name = "format", required = false, defaultValue = "md") String format,
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    if (!isFormat(format)) return ResponseData.error("BAD_REQUEST", "format must be md or html");
+    if (notModified(wikiRepository.versionBySlug(slug), variant(format, null), isAdminHeader, webRequest, response)) return null;
     WikiEntryDTO dto = wikiRepository.getBySlug(slug);
     if (dto == null) return ResponseData.error("NOT_FOUND", "wiki entry not found");
 
-    if (dto.isPublic() && dto.isIndexable()) return ResponseData.ok(dto);
+    if (dto.isPublic() && dto.isIndexable()) return ResponseData.ok(withFormat(dto, format));
 
     boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
-    if (isAdmin) return ResponseData.ok(dto);
+    if (isAdmin) return ResponseData.ok(withFormat(dto, format));
     return ResponseData.error("NOT_FOUND", "wiki entry not found");
   }
 
+  // Section list (anchor, title, level, offsets) for lazy-loading long entries.
+  @GetMapping("/entries/bySlug/{slug}/sections")
+  public ResponseData<List<WikiSectionDTO>> listSections(
+      @PathVariable("slug") String slug,
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    if (notModified(wikiRepository.versionBySlug(slug), "sections", isAdminHeader, webRequest, response)) return null;
+    WikiEntryDTO dto = wikiRepository.getBySlug(slug);
+    if (dto == null || !canRead(dto, isAdminHeader)) return ResponseData.error("NOT_FOUND", "wiki entry not found");
+    return ResponseData.ok(dto.getSections() == null ? List.of() : dto.getSections());
+  }
+
+  // One section, sliced out of the stored body / bodyHtml by the index computed at write time.
+  @GetMapping("/entries/bySlug/{slug}/sections/{anchor}")
+  public ResponseData<WikiSectionContentDTO> getSection(
+      @PathVariable("slug") String slug,
+      @PathVariable("anchor") String anchor,
+      @RequestParam(name = "format", required = false, defaultValue = "md") String format,
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    if (!isFormat(format)) return ResponseData.error("BAD_REQUEST", "format must be md or html");
+    if (notModified(
+        wikiRepository.versionBySlug(slug), variant(format, "section"), isAdminHeader, webRequest, response)) {
+      return null;
+    }
+    WikiEntryDTO dto = wikiRepository.getBySlug(slug);
+    if (dto == null || !canRead(dto, isAdminHeader)) return ResponseData.error("NOT_FOUND", "wiki entry not found");
+    WikiSectionDTO section = null;
+    if (dto.getSections() != null) {
+      for (WikiSectionDTO s : dto.getSections()) {
+        if (s.getAnchor().equals(anchor)) {
+          section = s;
+          break;
+        }
+      }
+    }
+    if (section == null) return ResponseData.error("NOT_FOUND", "section not found");
+
+    WikiSectionContentDTO out = new WikiSectionContentDTO();
+    out.setEntryId(dto.getEntryId());
+    out.setSlug(dto.getSlug());
+    out.setAnchor(section.getAnchor());
+    out.setTitle(section.getTitle());
+    out.setLevel(section.getLevel());
+    if (format.equalsIgnoreCase("html")) {
+      out.setBodyHtml(slice(dto.getBodyHtml(), section.getHtmlOffset(), section.getHtmlLength()));
+    } else {
+      out.setBody(slice(dto.getBody(), section.getOffset(), section.getLength()));
+    }
+    return ResponseData.ok(out);
+  }
+
   @GetMapping("/entries/{id}")
   public ResponseData<WikiEntryDTO> getEntry(
       @PathVariable("id") long id,
-      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader) {
+      @RequestParam(name = "format", required = false, defaultValue = "md") String format,
+      @RequestHeader(name = "X-Is-Admin", required = false) String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    if (!isFormat(format)) return ResponseData.error("BAD_REQUEST", "format must be md or html");
+    if (notModified(wikiRepository.version(id), variant(format, null), isAdminHeader, webRequest, response)) return null;
     WikiEntryDTO dto = wikiRepository.get(id);
     if (dto == null) return ResponseData.error("NOT_FOUND", "wiki entry not found");
-    if (dto.isPublic() && dto.isIndexable()) return ResponseData.ok(dto);
+    if (dto.isPublic() && dto.isIndexable()) return ResponseData.ok(withFormat(dto, format));
 
     boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
-    if (isAdmin) return ResponseData.ok(dto);
+    if (isAdmin) return ResponseData.ok(withFormat(dto, format));
     return ResponseData.error("NOT_FOUND", "wiki entry not found");
   }
 
+  // Conditional GET on the entry's version row, checked only when the caller may see the entry.
+  private static boolean notModified(
+      EntityVersion version,
+      String variant,
+      String isAdminHeader,
+      ServletWebRequest webRequest,
+      HttpServletResponse response) {
+    if (version == null) return false;
+    if (variant != null) version = version.withVariant(variant);
+    boolean isAdmin = isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true");
+    if (!version.visible && !isAdmin) return false;
+    response.setHeader(HttpHeaders.VARY, "X-Is-Admin");
+    response.setHeader(HttpHeaders.CACHE_CONTROL, version.visible ? "no-cache" : "private, no-cache");
+    return webRequest.checkNotModified(version.etag, version.lastModified);
+  }
+
+  // ETag variant for a representation: the html format and each sub-resource get their own.
+  private static String variant(String format, String resource) {
+    boolean html = format != null && format.equalsIgnoreCase("html");
+    if (resource == null) return html ? "html" : null;
+    return html ? resource + "-html" : resource;
+  }
+
+  private static boolean canRead(WikiEntryDTO dto, String isAdminHeader) {
+    return (dto.isPublic() && dto.isIndexable())
+        || (isAdminHeader != null && isAdminHeader.equalsIgnoreCase("true"));
+  }
+
+  private static String slice(String s, int offset, int length) {
+    if (s == null) return null;
+    int from = Math.max(0, Math.min(offset, s.length()));
+    return s.substring(from, Math.max(from, Math.min(s.length(), from + length)));
+  }
+
+  private static boolean isFormat(String format) {
+    return format.equalsIgnoreCase("md") || format.equalsIgnoreCase("html");
+  }
+
+  // format=md returns the markdown body, format=html the pre-rendered bodyHtml; both carry sections.
+  private static WikiEntryDTO withFormat(WikiEntryDTO dto, String format) {
+    if (format.equalsIgnoreCase("html")) {
+      dto.setBody(null);
+    } else {
+      dto.setBodyHtml(null);
+    }
+    return dto;
+  }
+
   @PostMapping("/entries")
   public ResponseData<WikiEntryDTO> createEntry(
       @RequestHeader(name = "X-User-One-Id", required = false) String userOneId,
@@ -0,0 +1,33 @@
+package com.chek.content.model.comment;
+
+import java.util.List;
+
+public class CommentNodeDTO extends CommentDTO {
+  private long replyCount;
+  private List<CommentNodeDTO> replies;
+  private Long replyCursor;
+
+  public long getReplyCount() {
+    return replyCount;
+  }
+
+  public void setReplyCount(long replyCount) {
+    this.replyCount = replyCount;
+  }
+
+  public List<CommentNodeDTO> getReplies() {
+    return replies;
+  }
+
+  public void setReplies(List<CommentNodeDTO> replies) {
+    this.replies = replies;
+  }
+
+  public Long getReplyCursor() {
+    return replyCursor;
+  }
+
+  public void setReplyCursor(Long replyCursor) {
+    this.replyCursor = replyCursor;
+  }
+}
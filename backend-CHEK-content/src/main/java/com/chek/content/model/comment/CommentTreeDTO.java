@@ -0,0 +1,24 @@
+package com.chek.content.model.comment;
+
+import java.util.List;
+
+public class CommentTreeDTO {
+  private List<CommentNodeDTO> items;
+  private Long nextCursor;
+
+  public List<CommentNodeDTO> getItems() {
+    return items;
+  }
+
+  public void setItems(List<CommentNodeDTO> items) {
+    this.items = items;
+  }
+
+  public Long getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(Long nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+}
@@ -0,0 +1,67 @@
+package com.chek.content.model.post;
+
+public class IngestBulkResult {
+  private long line;
+  private String sourcePlatform;
+  private String sourceId;
+  private Long postId;
+  private String status;
+  private String message;
+
+  public static IngestBulkResult of(long line, String sourcePlatform, String sourceId, String status) {
+    IngestBulkResult r = new IngestBulkResult();
+    r.line = line;
+    r.sourcePlatform = sourcePlatform;
+    r.sourceId = sourceId;
+    r.status = status;
+    return r;
+  }
+
+  public long getLine() {
+    return line;
+  }
+
+  public void setLine(long line) {
+    this.line = line;
+  }
+
+  public String getSourcePlatform() {
+    return sourcePlatform;
+  }
+
+  public void setSourcePlatform(String sourcePlatform) {
+    this.sourcePlatform = sourcePlatform;
+  }
+
+  public String getSourceId() {
+    return sourceId;
+  }
+
+  public void setSourceId(String sourceId) {
+    this.sourceId = sourceId;
+  }
+
+  public Long getPostId() {
+    return postId;
+  }
+
+  public void setPostId(Long postId) {
+    this.postId = postId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+}
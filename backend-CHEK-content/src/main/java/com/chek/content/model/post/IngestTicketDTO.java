@@ -0,0 +1,79 @@
+package com.chek.content.model.post;
+
+import java.time.Instant;
+
+public class IngestTicketDTO {
+  private String ticketId;
+  private String sourcePlatform;
+  private String sourceId;
+  // queued, then the IngestBulkResult status: created | updated | unchanged | skipped | error.
+  private String status;
+  private Long postId;
+  private String message;
+  private Instant acceptedAt;
+  private Instant completedAt;
+
+  public String getTicketId() {
+    return ticketId;
+  }
+
+  public void setTicketId(String ticketId) {
+    this.ticketId = ticketId;
+  }
+
+  public String getSourcePlatform() {
+    return sourcePlatform;
+  }
+
+  public void setSourcePlatform(String sourcePlatform) {
+    this.sourcePlatform = sourcePlatform;
+  }
+
+  public String getSourceId() {
+    return sourceId;
+  }
+
+  public void setSourceId(String sourceId) {
+    this.sourceId = sourceId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public Long getPostId() {
+    return postId;
+  }
+
+  public void setPostId(Long postId) {
+    this.postId = postId;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public Instant getAcceptedAt() {
+    return acceptedAt;
+  }
+
+  public void setAcceptedAt(Instant acceptedAt) {
+    this.acceptedAt = acceptedAt;
+  }
+
+  public Instant getCompletedAt() {
+    return completedAt;
+  }
+
+  public void setCompletedAt(Instant completedAt) {
+    this.completedAt = completedAt;
+  }
+}
@@ -8,12 +8,16 @@ public class PostDTO {
   private long postId;
   private String title;
   private String body;
+  private String excerpt;
+  private Integer textLength;
+  private String firstImageUrl;
   private List<String> tags;
   private String locationName;
   private Double lng;
   private Double lat;
   private Instant occurredAt;
   private List<PostMediaDTO> media;
+  private List<PostWikiLinkDTO> wikiLinks;
   private String authorUserOneId;
   private String sourcePlatform;
   private String sourceId;
@@ -52,6 +56,30 @@ public class PostDTO {
     this.body = body;
   }
 
+  public String getExcerpt() {
+    return excerpt;
+  }
+
+  public void setExcerpt(String excerpt) {
+    this.excerpt = excerpt;
+  }
+
+  public Integer getTextLength() {
+    return textLength;
+  }
+
+  public void setTextLength(Integer textLength) {
+    this.textLength = textLength;
+  }
+
+  public String getFirstImageUrl() {
+    return firstImageUrl;
+  }
+
+  public void setFirstImageUrl(String firstImageUrl) {
+    this.firstImageUrl = firstImageUrl;
+  }
+
   public List<String> getTags() {
     return tags;
   }
@@ -100,6 +128,14 @@ public class PostDTO {
     this.media = media;
   }
 
+  public List<PostWikiLinkDTO> getWikiLinks() {
+    return wikiLinks;
+  }
+
+  public void setWikiLinks(List<PostWikiLinkDTO> wikiLinks) {
+    this.wikiLinks = wikiLinks;
+  }
+
   public String getAuthorUserOneId() {
     return authorUserOneId;
   }
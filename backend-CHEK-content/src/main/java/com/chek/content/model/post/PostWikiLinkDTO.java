@@ -0,0 +1,41 @@
+package com.chek.content.model.post;
+
+// A wiki title mentioned in the post body: body.substring(start, start + length) links to slug.
+public class PostWikiLinkDTO {
+  private long entryId;
+  private String slug;
+  private int start;
+  private int length;
+
+  public long getEntryId() {
+    return entryId;
+  }
+
+  public void setEntryId(long entryId) {
+    this.entryId = entryId;
+  }
+
+  public String getSlug() {
+    return slug;
+  }
+
+  public void setSlug(String slug) {
+    this.slug = slug;
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  public void setStart(int start) {
+    this.start = start;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public void setLength(int length) {
+    this.length = length;
+  }
+}
@@ -0,0 +1,49 @@
+package com.chek.content.model.social;
+
+public class PostSocialStateDTO {
+  private long postId;
+  private boolean liked;
+  private long likeCount;
+  private boolean favorited;
+  private long favoriteCount;
+
+  public long getPostId() {
+    return postId;
+  }
+
+  public void setPostId(long postId) {
+    this.postId = postId;
+  }
+
+  public boolean isLiked() {
+    return liked;
+  }
+
+  public void setLiked(boolean liked) {
+    this.liked = liked;
+  }
+
+  public long getLikeCount() {
+    return likeCount;
+  }
+
+  public void setLikeCount(long likeCount) {
+    this.likeCount = likeCount;
+  }
+
+  public boolean isFavorited() {
+    return favorited;
+  }
+
+  public void setFavorited(boolean favorited) {
+    this.favorited = favorited;
+  }
+
+  public long getFavoriteCount() {
+    return favoriteCount;
+  }
+
+  public void setFavoriteCount(long favoriteCount) {
+    this.favoriteCount = favoriteCount;
+  }
+}
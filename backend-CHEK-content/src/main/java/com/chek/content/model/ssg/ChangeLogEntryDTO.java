@@ -0,0 +1,53 @@
+package com.chek.content.model.ssg;
+
+import java.time.Instant;
+
+public class ChangeLogEntryDTO {
+  private long seq;
+  // POST | WIKI
+  private String entityType;
+  private long entityId;
+  // UPSERT | DELETE | STATS | COMMENT
+  private String changeType;
+  private Instant changedAt;
+
+  public long getSeq() {
+    return seq;
+  }
+
+  public void setSeq(long seq) {
+    this.seq = seq;
+  }
+
+  public String getEntityType() {
+    return entityType;
+  }
+
+  public void setEntityType(String entityType) {
+    this.entityType = entityType;
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  public void setEntityId(long entityId) {
+    this.entityId = entityId;
+  }
+
+  public String getChangeType() {
+    return changeType;
+  }
+
+  public void setChangeType(String changeType) {
+    this.changeType = changeType;
+  }
+
+  public Instant getChangedAt() {
+    return changedAt;
+  }
+
+  public void setChangedAt(Instant changedAt) {
+    this.changedAt = changedAt;
+  }
+}
@@ -0,0 +1,35 @@
+package com.chek.content.model.ssg;
+
+import java.util.List;
+
+public class ChangeLogPageDTO {
+  private List<ChangeLogEntryDTO> items;
+  // Pass as sinceSeq on the next call.
+  private long nextSeq;
+  // sinceSeq is older than the retained log: rebuild everything, then continue from nextSeq.
+  private boolean resetRequired;
+
+  public List<ChangeLogEntryDTO> getItems() {
+    return items;
+  }
+
+  public void setItems(List<ChangeLogEntryDTO> items) {
+    this.items = items;
+  }
+
+  public long getNextSeq() {
+    return nextSeq;
+  }
+
+  public void setNextSeq(long nextSeq) {
+    this.nextSeq = nextSeq;
+  }
+
+  public boolean isResetRequired() {
+    return resetRequired;
+  }
+
+  public void setResetRequired(boolean resetRequired) {
+    this.resetRequired = resetRequired;
+  }
+}
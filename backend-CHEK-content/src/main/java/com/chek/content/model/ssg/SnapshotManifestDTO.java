@@ -0,0 +1,35 @@
+package com.chek.content.model.ssg;
+
+import java.time.Instant;
+import java.util.List;
+
+public class SnapshotManifestDTO {
+  private Instant generatedAt;
+  // Change-log position taken before the scan: poll /changes from here to stay current.
+  private long changeLogSeq;
+  private List<SnapshotSegmentDTO> segments;
+
+  public Instant getGeneratedAt() {
+    return generatedAt;
+  }
+
+  public void setGeneratedAt(Instant generatedAt) {
+    this.generatedAt = generatedAt;
+  }
+
+  public long getChangeLogSeq() {
+    return changeLogSeq;
+  }
+
+  public void setChangeLogSeq(long changeLogSeq) {
+    this.changeLogSeq = changeLogSeq;
+  }
+
+  public List<SnapshotSegmentDTO> getSegments() {
+    return segments;
+  }
+
+  public void setSegments(List<SnapshotSegmentDTO> segments) {
+    this.segments = segments;
+  }
+}
@@ -0,0 +1,51 @@
+package com.chek.content.model.ssg;
+
+public class SnapshotSegmentDTO {
+  // posts | wiki | tags
+  private String kind;
+  // <kind>-<sha256>.ndjson.gz, served at /v1/public/ssg/snapshot/files/{file}.
+  private String file;
+  private String sha256;
+  private long rows;
+  private long bytes;
+
+  public String getKind() {
+    return kind;
+  }
+
+  public void setKind(String kind) {
+    this.kind = kind;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  public String getSha256() {
+    return sha256;
+  }
+
+  public void setSha256(String sha256) {
+    this.sha256 = sha256;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(long bytes) {
+    this.bytes = bytes;
+  }
+}
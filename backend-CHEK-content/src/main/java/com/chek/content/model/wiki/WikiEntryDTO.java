@@ -10,6 +10,8 @@ public class WikiEntryDTO {
   private String title;
   private String summary;
   private String body;
+  private String bodyHtml;
+  private List<WikiSectionDTO> sections;
   private List<String> tags;
   private boolean isPublic;
   private boolean isIndexable;
@@ -57,6 +59,22 @@ public class WikiEntryDTO {
     this.body = body;
   }
 
+  public String getBodyHtml() {
+    return bodyHtml;
+  }
+
+  public void setBodyHtml(String bodyHtml) {
+    this.bodyHtml = bodyHtml;
+  }
+
+  public List<WikiSectionDTO> getSections() {
+    return sections;
+  }
+
+  public void setSections(List<WikiSectionDTO> sections) {
+    this.sections = sections;
+  }
+
   public List<String> getTags() {
     return tags;
   }
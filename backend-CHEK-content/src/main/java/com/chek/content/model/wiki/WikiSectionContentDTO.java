@@ -0,0 +1,68 @@
+package com.chek.content.model.wiki;
+
+// One section of a wiki entry: body (markdown) or bodyHtml, depending on the requested format.
+public class WikiSectionContentDTO {
+  private long entryId;
+  private String slug;
+  private String anchor;
+  private String title;
+  private int level;
+  private String body;
+  private String bodyHtml;
+
+  public long getEntryId() {
+    return entryId;
+  }
+
+  public void setEntryId(long entryId) {
+    this.entryId = entryId;
+  }
+
+  public String getSlug() {
+    return slug;
+  }
+
+  public void setSlug(String slug) {
+    this.slug = slug;
+  }
+
+  public String getAnchor() {
+    return anchor;
+  }
+
+  public void setAnchor(String anchor) {
+    this.anchor = anchor;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public void setLevel(int level) {
+    this.level = level;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public void setBody(String body) {
+    this.body = body;
+  }
+
+  public String getBodyHtml() {
+    return bodyHtml;
+  }
+
+  public void setBodyHtml(String bodyHtml) {
+    this.bodyHtml = bodyHtml;
+  }
+}
@@ -0,0 +1,69 @@
+package com.chek.content.model.wiki;
+
+// One heading of a wiki body: offset/length index body (markdown), htmlOffset/htmlLength index
+// bodyHtml. A section runs up to the next heading of the same or a higher level.
+public class WikiSectionDTO {
+  private String anchor;
+  private String title;
+  private int level;
+  private int offset;
+  private int length;
+  private int htmlOffset;
+  private int htmlLength;
+
+  public String getAnchor() {
+    return anchor;
+  }
+
+  public void setAnchor(String anchor) {
+    this.anchor = anchor;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public void setLevel(int level) {
+    this.level = level;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public void setOffset(int offset) {
+    this.offset = offset;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  public void setLength(int length) {
+    this.length = length;
+  }
+
+  public int getHtmlOffset() {
+    return htmlOffset;
+  }
+
+  public void setHtmlOffset(int htmlOffset) {
+    this.htmlOffset = htmlOffset;
+  }
+
+  public int getHtmlLength() {
+    return htmlLength;
+  }
+
+  public void setHtmlLength(int htmlLength) {
+    this.htmlLength = htmlLength;
+  }
+}
@@ -0,0 +1,226 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.ssg.ChangeLogEntryDTO;
+import com.chek.content.model.ssg.ChangeLogPageDTO;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Append-only chek_content_change_log behind /v1/public/ssg/changes. Writers call record() inside
+// the transaction of the mutation itself, so a change is logged iff it commits.
+//
+// seq comes from AUTO_INCREMENT, which is allocated at insert time, not commit time: a reader can
+// see seq N+1 while N is still uncommitted. listSince therefore stops before any gap younger than
+// CHEK_CHANGE_LOG_GAP_GRACE_SECONDS; older gaps are rolled-back transactions and are skipped.
+//
+// Counter changes (STATS, COMMENT) are hot-path and only tell the reader to refresh a page, so
+// recordCoalesced() marks them after commit and a flush every CHEK_CHANGE_LOG_COALESCE_MS writes one
+// row per (entity, change type) instead of one per like/favorite/comment. Marks not yet flushed are
+// lost if the process dies; the next change of the post logs it again.
+@Repository
+public class ChangeLogRepository {
+  private static final Logger log = LoggerFactory.getLogger(ChangeLogRepository.class);
+  private static final int PURGE_BATCH = 10000;
+
+  public static final String POST = "POST";
+  public static final String WIKI = "WIKI";
+
+  public static final String UPSERT = "UPSERT";
+  public static final String DELETE = "DELETE";
+  public static final String STATS = "STATS";
+  public static final String COMMENT = "COMMENT";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final long gapGraceSeconds;
+  private final int retentionDays;
+  private final boolean coalesce;
+  // "entityType changeType" -> entity ids marked since the last flush.
+  private Map<String, Set<Long>> marked = new HashMap<>();
+
+  public ChangeLogRepository(
+      JdbcTemplate jdbcTemplate,
+      @Value("${CHEK_CHANGE_LOG_GAP_GRACE_SECONDS:30}") long gapGraceSeconds,
+      @Value("${CHEK_CHANGE_LOG_RETENTION_DAYS:30}") int retentionDays,
+      @Value("${CHEK_CHANGE_LOG_COALESCE_ENABLED:true}") boolean coalesce) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.gapGraceSeconds = Math.max(0L, gapGraceSeconds);
+    this.retentionDays = Math.max(1, retentionDays);
+    this.coalesce = coalesce;
+  }
+
+  public void record(String entityType, long entityId, String changeType) {
+    jdbcTemplate.update(
+        "INSERT INTO chek_content_change_log(entity_type, entity_id, change_type, created_at) VALUES(?, ?, ?, NOW())",
+        entityType,
+        entityId,
+        changeType);
+  }
+
+  public void recordAll(String entityType, List<Long> entityIds, String changeType) {
+    if (entityIds.isEmpty()) return;
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO chek_content_change_log(entity_type, entity_id, change_type, created_at) VALUES(?, ?, ?, NOW())",
+        entityIds.stream().map(id -> new Object[] {entityType, id, changeType}).toList());
+  }
+
+  // Logs the change at the next flush, once the surrounding transaction commits. Falls back to
+  // record() when CHEK_CHANGE_LOG_COALESCE_ENABLED is off.
+  public void recordCoalesced(String entityType, long entityId, String changeType) {
+    if (!coalesce) {
+      record(entityType, entityId, changeType);
+      return;
+    }
+    String key = entityType + " " + changeType;
+    Runnable r = () -> mark(key, entityId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+
+  private synchronized void mark(String key, long entityId) {
+    marked.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(entityId);
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_CHANGE_LOG_COALESCE_MS:5000}",
+      fixedDelayString = "${CHEK_CHANGE_LOG_COALESCE_MS:5000}")
+  public void scheduledFlush() {
+    try {
+      flushCoalesced();
+    } catch (Exception e) {
+      log.warn("change log flush failed", e);
+    }
+  }
+
+  @PreDestroy
+  public void flushCoalesced() {
+    Map<String, Set<Long>> batch;
+    synchronized (this) {
+      if (marked.isEmpty()) return;
+      batch = marked;
+      marked = new HashMap<>();
+    }
+    try {
+      for (Map.Entry<String, Set<Long>> e : batch.entrySet()) {
+        String[] type = e.getKey().split(" ", 2);
+        recordAll(type[0], new ArrayList<>(e.getValue()), type[1]);
+      }
+    } catch (RuntimeException e) {
+      // Rows are written per key without a transaction, so a retry may repeat some; readers only
+      // refresh on them.
+      synchronized (this) {
+        for (Map.Entry<String, Set<Long>> b : batch.entrySet()) {
+          marked.computeIfAbsent(b.getKey(), k -> new LinkedHashSet<>()).addAll(b.getValue());
+        }
+      }
+      throw e;
+    }
+  }
+
+  // A position every change up to which has committed (or never will): the newest seq older than
+  // the gap grace period. Replaying from here may repeat a few changes but never misses one.
+  public long settledSeq() {
+    Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+    Long seq =
+        jdbcTemplate.queryForObject(
+            "SELECT MAX(seq) FROM chek_content_change_log WHERE created_at < ?",
+            Long.class,
+            new Timestamp(now.getTime() - Duration.ofSeconds(gapGraceSeconds).toMillis()));
+    return seq == null ? 0L : seq;
+  }
+
+  public ChangeLogPageDTO listSince(long sinceSeq, int limit) {
+    int n = Math.max(1, Math.min(limit, 5000));
+    long since = Math.max(0L, sinceSeq);
+    ChangeLogPageDTO page = new ChangeLogPageDTO();
+    page.setItems(new ArrayList<>());
+    page.setNextSeq(since);
+
+    Long oldest = jdbcTemplate.queryForObject("SELECT MIN(seq) FROM chek_content_change_log", Long.class);
+    if (since > 0 && oldest != null && since < oldest - 1) {
+      page.setResetRequired(true);
+      page.setNextSeq(oldest - 1);
+      return page;
+    }
+
+    Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+    long settledBefore = now.getTime() - Duration.ofSeconds(gapGraceSeconds).toMillis();
+    List<ChangeLogEntryDTO> rows =
+        jdbcTemplate.query(
+            "SELECT seq, entity_type, entity_id, change_type, created_at FROM chek_content_change_log "
+                + "WHERE seq > ? ORDER BY seq ASC LIMIT ?",
+            (rs, rowNum) -> {
+              ChangeLogEntryDTO dto = new ChangeLogEntryDTO();
+              dto.setSeq(rs.getLong("seq"));
+              dto.setEntityType(rs.getString("entity_type"));
+              dto.setEntityId(rs.getLong("entity_id"));
+              dto.setChangeType(rs.getString("change_type"));
+              dto.setChangedAt(rs.getTimestamp("created_at").toInstant());
+              return dto;
+            },
+            since,
+            n);
+
+    long prev = since;
+    for (ChangeLogEntryDTO dto : rows) {
+      boolean gap = prev > 0 && dto.getSeq() != prev + 1;
+      if (gap && dto.getChangedAt().toEpochMilli() > settledBefore) break;
+      page.getItems().add(dto);
+      prev = dto.getSeq();
+    }
+    page.setNextSeq(prev);
+    return page;
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_CHANGE_LOG_PURGE_INTERVAL_MS:3600000}",
+      fixedDelayString = "${CHEK_CHANGE_LOG_PURGE_INTERVAL_MS:3600000}")
+  public void scheduledPurge() {
+    try {
+      purge();
+    } catch (Exception e) {
+      log.warn("change log purge failed", e);
+    }
+  }
+
+  // Deletes rows older than CHEK_CHANGE_LOG_RETENTION_DAYS in seq ranges of PURGE_BATCH.
+  public long purge() {
+    Long upTo =
+        jdbcTemplate.queryForObject(
+            "SELECT MAX(seq) FROM chek_content_change_log WHERE created_at < ?",
+            Long.class,
+            new Timestamp(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis()));
+    Long from = jdbcTemplate.queryForObject("SELECT MIN(seq) FROM chek_content_change_log", Long.class);
+    if (upTo == null || from == null) return 0L;
+    long deleted = 0L;
+    for (long lo = from - 1; lo < upTo; lo += PURGE_BATCH) {
+      deleted +=
+          jdbcTemplate.update(
+              "DELETE FROM chek_content_change_log WHERE seq > ? AND seq <= ?", lo, Math.min(upTo, lo + PURGE_BATCH));
+    }
+    if (deleted > 0) log.info("change log purge removed {} rows", deleted);
+    return deleted;
+  }
+}
@@ -0,0 +1,24 @@
+package com.chek.content.repo;
+
+// Cheap validator for a post or wiki entry detail, read before the full row so conditional GETs
+// can answer 304 without loading and hydrating it. visible = is_public AND is_indexable.
+public class EntityVersion {
+  public final String etag;
+  public final long lastModified;
+  public final boolean visible;
+  public final String authorUserOneId;
+
+  public EntityVersion(String etag, long lastModified, boolean visible, String authorUserOneId) {
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.visible = visible;
+    this.authorUserOneId = authorUserOneId;
+  }
+
+  // Same validator for another representation of the entity (e.g. "html"), so caches never serve one
+  // format for the other.
+  public EntityVersion withVariant(String variant) {
+    String tag = etag.substring(0, etag.length() - 1) + "-" + variant + "\"";
+    return new EntityVersion(tag, lastModified, visible, authorUserOneId);
+  }
+}
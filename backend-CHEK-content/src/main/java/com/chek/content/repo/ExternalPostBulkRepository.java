@@ -0,0 +1,317 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.IngestBulkResult;
+import com.chek.content.model.post.IngestExternalPostRequest;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// Set-based version of PostRepository.upsertExternal for /v1/ingest/externalPosts:bulkUpsert: one
+// source lookup, batched inserts/updates and bulk tag resolution per chunk, in one transaction.
+// Records whose content hash matches the stored one are reported "unchanged" and not written.
+// With MySQL, rewriteBatchedStatements=true on DB_URL turns the batches into multi-row statements;
+// their per-row counts are then SUCCESS_NO_INFO, and inserts fall back to comparing content hashes.
+@Repository
+public class ExternalPostBulkRepository {
+  private static final int MAX_PARAMS_PER_IN = 500;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TagDictionary tagDictionary;
+  private final ChangeLogRepository changeLogRepository;
+  private final PostWikiLinkRepository postWikiLinkRepository;
+
+  public ExternalPostBulkRepository(
+      JdbcTemplate jdbcTemplate,
+      TagDictionary tagDictionary,
+      ChangeLogRepository changeLogRepository,
+      PostWikiLinkRepository postWikiLinkRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.tagDictionary = tagDictionary;
+    this.changeLogRepository = changeLogRepository;
+    this.postWikiLinkRepository = postWikiLinkRepository;
+  }
+
+  // One validated record; platform/sourceId/author are already trimmed. Keys must be unique
+  // within a chunk.
+  public static class Item {
+    public final long line;
+    public final IngestExternalPostRequest req;
+    public final String platform;
+    public final String sourceId;
+    public final String author;
+
+    public Item(long line, IngestExternalPostRequest req, String platform, String sourceId, String author) {
+      this.line = line;
+      this.req = req;
+      this.platform = platform;
+      this.sourceId = sourceId;
+      this.author = author;
+    }
+
+    public String key() {
+      return ExternalPostBulkRepository.key(platform, sourceId);
+    }
+  }
+
+  @Transactional
+  public List<IngestBulkResult> upsertChunk(List<Item> items) {
+    if (items.isEmpty()) return Collections.emptyList();
+
+    Map<String, String> storedHashes = new HashMap<>();
+    Map<String, Long> ids = findIdsBySource(items, storedHashes);
+    Map<String, String> hashes = new HashMap<>();
+    for (Item it : items) hashes.put(it.key(), ExternalPostHash.of(it.req));
+
+    List<Item> updates = new ArrayList<>();
+    List<Item> inserts = new ArrayList<>();
+    Set<String> unchanged = new HashSet<>();
+    for (Item it : items) {
+      if (ids.containsKey(it.key())) {
+        if (hashes.get(it.key()).equals(storedHashes.get(it.key()))) {
+          unchanged.add(it.key());
+        } else {
+          updates.add(it);
+        }
+      } else {
+        inserts.add(it);
+      }
+    }
+
+    Map<String, PostExcerpt> excerpts = new HashMap<>();
+    for (Item it : inserts) excerpts.put(it.key(), PostExcerpt.of(it.req.getBody()));
+    for (Item it : updates) excerpts.put(it.key(), PostExcerpt.of(it.req.getBody()));
+
+    Set<String> created = new LinkedHashSet<>();
+    if (!inserts.isEmpty()) {
+      int[] counts = jdbcTemplate.batchUpdate(
+          "INSERT IGNORE INTO chek_content_post(title, body_md, is_public, is_indexable, occurred_at, location_name, lng, lat, author_user_one_id, source_platform, source_id, source_url, content_hash, excerpt, text_length, first_image_url, created_at, updated_at) "
+              + "VALUES(?, ?, TRUE, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())",
+          inserts.stream()
+              .map(
+                  it ->
+                      new Object[] {
+                        it.req.getTitle(),
+                        it.req.getBody(),
+                        toTimestamp(it.req),
+                        it.req.getLocationName(),
+                        toDecimal(it.req.getLng()),
+                        toDecimal(it.req.getLat()),
+                        it.author,
+                        it.platform,
+                        it.sourceId,
+                        it.req.getSourceUrl(),
+                        hashes.get(it.key()),
+                        excerpts.get(it.key()).excerpt,
+                        excerpts.get(it.key()).textLength,
+                        excerpts.get(it.key()).firstImageUrl
+                      })
+              .toList());
+      // None of these sources existed at the lookup above; a row there now that we did not insert
+      // came from a concurrent writer. A count of 1/0 says whether ours went in; with
+      // SUCCESS_NO_INFO a row carrying our content hash is taken as ours. A concurrent row with our
+      // content is left alone, any other one is updated like an existing source.
+      Map<String, String> insertedHashes = new HashMap<>();
+      ids.putAll(findIdsBySource(inserts, insertedHashes));
+      for (int i = 0; i < inserts.size(); i++) {
+        Item it = inserts.get(i);
+        if (!ids.containsKey(it.key())) continue;
+        boolean sameHash = hashes.get(it.key()).equals(insertedHashes.get(it.key()));
+        boolean inserted = i < counts.length && counts[i] >= 0 ? counts[i] > 0 : sameHash;
+        if (inserted) {
+          created.add(it.key());
+        } else if (sameHash) {
+          unchanged.add(it.key());
+        } else {
+          updates.add(it);
+        }
+      }
+    }
+
+    List<Item> written = new ArrayList<>();
+    for (Item it : items) {
+      if (ids.containsKey(it.key()) && !unchanged.contains(it.key())) written.add(it);
+    }
+    List<Item> toUpdate = updates.stream().filter(it -> ids.containsKey(it.key())).toList();
+    if (!toUpdate.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "UPDATE chek_content_post SET title = ?, body_md = ?, occurred_at = ?, location_name = ?, lng = ?, lat = ?, source_url = ?, content_hash = ?, "
+              + "excerpt = ?, text_length = ?, first_image_url = ?, version = version + 1, updated_at = NOW() WHERE id = ?",
+          toUpdate.stream()
+              .map(
+                  it ->
+                      new Object[] {
+                        it.req.getTitle(),
+                        it.req.getBody(),
+                        toTimestamp(it.req),
+                        it.req.getLocationName(),
+                        toDecimal(it.req.getLng()),
+                        toDecimal(it.req.getLat()),
+                        it.req.getSourceUrl(),
+                        hashes.get(it.key()),
+                        excerpts.get(it.key()).excerpt,
+                        excerpts.get(it.key()).textLength,
+                        excerpts.get(it.key()).firstImageUrl,
+                        ids.get(it.key())
+                      })
+              .toList());
+      deleteIn(
+          "DELETE FROM chek_content_post_tag WHERE post_id IN ",
+          toUpdate.stream().map(it -> ids.get(it.key())).toList());
+    }
+
+    List<Object[]> statsRows = new ArrayList<>();
+    for (String key : created) statsRows.add(new Object[] {ids.get(key)});
+    if (!statsRows.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "INSERT IGNORE INTO chek_content_post_stats(post_id, updated_at) VALUES(?, NOW())", statsRows);
+    }
+
+    writeTags(written, ids);
+    Map<Long, String> bodies = new HashMap<>();
+    for (Item it : written) bodies.put(ids.get(it.key()), it.req.getBody());
+    postWikiLinkRepository.replace(bodies);
+    changeLogRepository.recordAll(
+        ChangeLogRepository.POST, written.stream().map(it -> ids.get(it.key())).toList(), ChangeLogRepository.UPSERT);
+
+    List<IngestBulkResult> out = new ArrayList<>(items.size());
+    for (Item it : items) {
+      Long id = ids.get(it.key());
+      IngestBulkResult r = IngestBulkResult.of(it.line, it.platform, it.sourceId, "error");
+      if (id == null) {
+        // Our insert was ignored, yet no row for the source was found afterwards.
+        r.setMessage("insert ignored but no post found for this source");
+      } else {
+        r.setPostId(id);
+        r.setStatus(
+            created.contains(it.key()) ? "created" : unchanged.contains(it.key()) ? "unchanged" : "updated");
+      }
+      out.add(r);
+    }
+    return out;
+  }
+
+  private void writeTags(List<Item> items, Map<String, Long> ids) {
+    Map<Long, List<String>> namesByPost = new HashMap<>();
+    Set<String> allNames = new LinkedHashSet<>();
+    for (Item it : items) {
+      List<String> names = normalizeTags(it.req.getTags());
+      if (names.isEmpty()) continue;
+      namesByPost.put(ids.get(it.key()), names);
+      allNames.addAll(names);
+    }
+    if (allNames.isEmpty()) return;
+
+    Map<String, Long> tagIds = tagDictionary.resolve(allNames);
+    List<Object[]> rows = new ArrayList<>();
+    for (Map.Entry<Long, List<String>> e : namesByPost.entrySet()) {
+      Set<Long> seen = new LinkedHashSet<>();
+      for (String name : e.getValue()) {
+        Long tagId = tagIds.get(name);
+        if (tagId != null && seen.add(tagId)) rows.add(new Object[] {e.getKey(), tagId});
+      }
+    }
+    if (!rows.isEmpty()) {
+      jdbcTemplate.batchUpdate("INSERT IGNORE INTO chek_content_post_tag(post_id, tag_id) VALUES(?, ?)", rows);
+    }
+  }
+
+  // Fills storedHashes (when non-null) with each found post's content_hash. Results are keyed by
+  // the item key they match.
+  private Map<String, Long> findIdsBySource(List<Item> items, Map<String, String> storedHashes) {
+    Map<String, Long> out = new HashMap<>();
+    for (int from = 0; from < items.size(); from += MAX_PARAMS_PER_IN / 2) {
+      List<Item> chunk = items.subList(from, Math.min(items.size(), from + MAX_PARAMS_PER_IN / 2));
+      Set<String> wanted = new HashSet<>();
+      List<Object> args = new ArrayList<>();
+      for (Item it : chunk) {
+        wanted.add(it.key());
+        args.add(it.platform);
+        args.add(it.sourceId);
+      }
+      int[] strays = {0};
+      jdbcTemplate.query(
+          "SELECT id, source_platform, source_id, content_hash FROM chek_content_post WHERE (source_platform, source_id) IN ("
+              + String.join(",", Collections.nCopies(chunk.size(), "(?, ?)"))
+              + ")",
+          rs -> {
+            String key = key(rs.getString("source_platform"), rs.getString("source_id"));
+            if (!wanted.contains(key)) {
+              strays[0]++;
+              return;
+            }
+            out.put(key, rs.getLong("id"));
+            if (storedHashes != null) storedHashes.put(key, rs.getString("content_hash"));
+          },
+          args.toArray());
+      if (strays[0] == 0) continue;
+      // The collation also matched a row that key() does not fold to any item (e.g. accents under
+      // utf8mb4_unicode_ci): let the database pair the remaining items with their rows.
+      for (Item it : chunk) {
+        if (out.containsKey(it.key())) continue;
+        jdbcTemplate.query(
+            "SELECT id, content_hash FROM chek_content_post WHERE source_platform = ? AND source_id = ? LIMIT 1",
+            rs -> {
+              out.put(it.key(), rs.getLong("id"));
+              if (storedHashes != null) storedHashes.put(it.key(), rs.getString("content_hash"));
+            },
+            it.platform,
+            it.sourceId);
+      }
+    }
+    return out;
+  }
+
+  private void deleteIn(String sqlPrefix, List<Long> ids) {
+    for (int from = 0; from < ids.size(); from += MAX_PARAMS_PER_IN) {
+      List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_PARAMS_PER_IN));
+      jdbcTemplate.update(sqlPrefix + "(" + placeholders(chunk.size()) + ")", chunk.toArray());
+    }
+  }
+
+  // source_platform/source_id compare like utf8mb4_unicode_ci (PAD SPACE): ignoring case and
+  // trailing spaces. Keys fold the same way, so items the database treats as one source share a key.
+  private static String key(String platform, String sourceId) {
+    return fold(platform) + "\u0000" + fold(sourceId);
+  }
+
+  private static String fold(String s) {
+    int end = s.length();
+    while (end > 0 && s.charAt(end - 1) == ' ') end--;
+    return s.substring(0, end).toLowerCase(Locale.ROOT);
+  }
+
+  private static Timestamp toTimestamp(IngestExternalPostRequest req) {
+    return req.getOccurredAt() == null ? null : Timestamp.from(req.getOccurredAt());
+  }
+
+  private static BigDecimal toDecimal(Double v) {
+    return v == null ? null : BigDecimal.valueOf(v);
+  }
+
+  private static List<String> normalizeTags(List<String> tags) {
+    if (tags == null || tags.isEmpty()) return Collections.emptyList();
+    List<String> out = new ArrayList<>();
+    for (String t : tags) {
+      if (t == null) continue;
+      String s = t.trim();
+      if (s.isEmpty()) continue;
+      out.add(s);
+    }
+    return out.stream().distinct().toList();
+  }
+
+  private static String placeholders(int n) {
+    return String.join(",", Collections.nCopies(n, "?"));
+  }
+}
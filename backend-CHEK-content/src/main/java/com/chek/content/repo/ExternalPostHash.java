@@ -0,0 +1,54 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.IngestExternalPostRequest;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+// SHA-256 over everything an external re-ingest can change (title, body, tags, location, occurredAt,
+// sourceUrl), stored in chek_content_post.content_hash. Tags are compared as a set. Every field is
+// length-prefixed so values cannot run into each other.
+final class ExternalPostHash {
+  private ExternalPostHash() {}
+
+  static String of(IngestExternalPostRequest req) {
+    StringBuilder sb = new StringBuilder();
+    append(sb, req.getTitle());
+    append(sb, req.getBody());
+    List<String> tags =
+        req.getTags() == null
+            ? List.of()
+            : req.getTags().stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    sb.append(tags.size()).append('#');
+    for (String t : tags) append(sb, t);
+    append(sb, req.getLocationName());
+    append(sb, req.getLng() == null ? null : BigDecimal.valueOf(req.getLng()).toPlainString());
+    append(sb, req.getLat() == null ? null : BigDecimal.valueOf(req.getLat()).toPlainString());
+    append(sb, req.getOccurredAt() == null ? null : req.getOccurredAt().toString());
+    append(sb, req.getSourceUrl());
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void append(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append('-');
+    } else {
+      sb.append(value.length()).append(':').append(value);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// The newest CHEK_LATEST_FEED_SIZE public+indexable posts, newest first, for unfiltered /v1/posts
+// pages. Readers take an immutable snapshot from an AtomicReference without locking; writers build
+// a new snapshot (copy-on-write) and swap it in. The snapshot always holds every visible post with
+// id >= its oldest id, so a page inside it is exactly what the SQL path would return.
+//
+// The buffer is reloaded periodically to pick up writes made by other instances.
+@Repository
+public class LatestFeedBuffer {
+  private static final Logger log = LoggerFactory.getLogger(LatestFeedBuffer.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final PostHydrator postHydrator;
+  private final boolean enabled;
+  private final int capacity;
+
+  private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+  private volatile boolean ready;
+  private List<UnaryOperator<Snapshot>> pending;
+
+  public LatestFeedBuffer(
+      JdbcTemplate jdbcTemplate,
+      PostHydrator postHydrator,
+      @Value("${CHEK_LATEST_FEED_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_LATEST_FEED_SIZE:1000}") int capacity) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.postHydrator = postHydrator;
+    this.enabled = enabled;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuild();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_LATEST_FEED_REBUILD_INTERVAL_MS:300000}",
+      fixedDelayString = "${CHEK_LATEST_FEED_REBUILD_INTERVAL_MS:300000}")
+  public void scheduledRebuild() {
+    rebuild();
+  }
+
+  public void rebuild() {
+    if (!enabled) return;
+    long started = System.currentTimeMillis();
+    synchronized (this) {
+      pending = new ArrayList<>();
+    }
+    try {
+      List<PostDTO> rows =
+          jdbcTemplate.query(
+              PostRepository.POST_SELECT
+                  + "WHERE p.is_public = TRUE AND p.is_indexable = TRUE ORDER BY p.id DESC LIMIT ?",
+              (rs, rowNum) -> PostRepository.mapPost(rs),
+              capacity + 1);
+      boolean exhaustive = rows.size() <= capacity;
+      if (!exhaustive) rows = rows.subList(0, capacity);
+      postHydrator.hydrate(rows);
+      Snapshot next = new Snapshot(rows.toArray(new PostDTO[0]), exhaustive);
+      synchronized (this) {
+        for (UnaryOperator<Snapshot> op : pending) next = op.apply(next);
+        current.set(next);
+        ready = true;
+      }
+      log.info("latest feed: {} posts loaded in {} ms", next.posts.length, System.currentTimeMillis() - started);
+    } catch (Exception e) {
+      log.warn("latest feed rebuild failed", e);
+    } finally {
+      synchronized (this) {
+        pending = null;
+      }
+    }
+  }
+
+  // Returns copies of up to n posts with id < beforeId (0 = from the top), or null when the page
+  // reaches past the buffered range and must come from MySQL.
+  public List<PostDTO> page(long beforeId, int n) {
+    if (!enabled || !ready) return null;
+    Snapshot s = current.get();
+    int from = beforeId > 0 ? s.indexBelow(beforeId) : 0;
+    int to = Math.min(s.posts.length, from + n);
+    if (to - from < n && !s.exhaustive) return null;
+    List<PostDTO> out = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) out.add(copy(s.posts[i]));
+    return out;
+  }
+
+  // Inserts or replaces the post (or drops it when it is no longer visible).
+  public void put(PostDTO dto) {
+    if (!enabled || dto == null) return;
+    if (!(dto.isPublic() && dto.isIndexable())) {
+      remove(dto.getPostId());
+      return;
+    }
+    PostDTO stored = copy(dto);
+    apply(s -> s.put(stored, capacity));
+  }
+
+  public void remove(long postId) {
+    if (!enabled) return;
+    apply(s -> s.remove(postId));
+  }
+
+  // Applied after commit so a rolled-back like/comment never shows up in the feed.
+  public void addCounts(long postId, long comments, long likes, long favorites) {
+    if (!enabled) return;
+    Runnable r = () -> apply(s -> s.addCounts(postId, comments, likes, favorites));
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+
+  private synchronized void apply(UnaryOperator<Snapshot> op) {
+    current.set(op.apply(current.get()));
+    if (pending != null) pending.add(op);
+  }
+
+  private static PostDTO copy(PostDTO src) {
+    PostDTO dto = new PostDTO();
+    dto.setPostId(src.getPostId());
+    dto.setTitle(src.getTitle());
+    dto.setBody(src.getBody());
+    dto.setExcerpt(src.getExcerpt());
+    dto.setTextLength(src.getTextLength());
+    dto.setFirstImageUrl(src.getFirstImageUrl());
+    dto.setTags(src.getTags());
+    dto.setLocationName(src.getLocationName());
+    dto.setLng(src.getLng());
+    dto.setLat(src.getLat());
+    dto.setOccurredAt(src.getOccurredAt());
+    dto.setMedia(src.getMedia());
+    dto.setWikiLinks(src.getWikiLinks());
+    dto.setAuthorUserOneId(src.getAuthorUserOneId());
+    dto.setSourcePlatform(src.getSourcePlatform());
+    dto.setSourceId(src.getSourceId());
+    dto.setSourceUrl(src.getSourceUrl());
+    dto.setPublic(src.isPublic());
+    dto.setIndexable(src.isIndexable());
+    dto.setCommentCount(src.getCommentCount());
+    dto.setLikeCount(src.getLikeCount());
+    dto.setFavoriteCount(src.getFavoriteCount());
+    dto.setLikedByMe(false);
+    dto.setFavoritedByMe(false);
+    dto.setCreatedAt(src.getCreatedAt());
+    dto.setUpdatedAt(src.getUpdatedAt());
+    return dto;
+  }
+
+  // Immutable: posts sorted by id descending; exhaustive when it holds every visible post.
+  private static class Snapshot {
+    static final Snapshot EMPTY = new Snapshot(new PostDTO[0], false);
+
+    final PostDTO[] posts;
+    final boolean exhaustive;
+
+    Snapshot(PostDTO[] posts, boolean exhaustive) {
+      this.posts = posts;
+      this.exhaustive = exhaustive;
+    }
+
+    // Index of the first post with id < beforeId.
+    int indexBelow(long beforeId) {
+      int lo = 0;
+      int hi = posts.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (posts[mid].getPostId() >= beforeId) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    int indexOf(long postId) {
+      int i = indexBelow(postId + 1);
+      return i < posts.length && posts[i].getPostId() == postId ? i : -1;
+    }
+
+    Snapshot put(PostDTO dto, int capacity) {
+      int i = indexOf(dto.getPostId());
+      if (i >= 0) {
+        PostDTO[] next = posts.clone();
+        next[i] = dto;
+        return new Snapshot(next, exhaustive);
+      }
+      // Below the oldest buffered post we cannot tell what lies in between; leave it to MySQL.
+      int at = indexBelow(dto.getPostId());
+      if (at == posts.length && !exhaustive) return this;
+
+      PostDTO[] next = new PostDTO[posts.length + 1];
+      System.arraycopy(posts, 0, next, 0, at);
+      next[at] = dto;
+      System.arraycopy(posts, at, next, at + 1, posts.length - at);
+      if (next.length > capacity) return new Snapshot(Arrays.copyOf(next, capacity), false);
+      return new Snapshot(next, exhaustive);
+    }
+
+    Snapshot remove(long postId) {
+      int i = indexOf(postId);
+      if (i < 0) return this;
+      PostDTO[] next = new PostDTO[posts.length - 1];
+      System.arraycopy(posts, 0, next, 0, i);
+      System.arraycopy(posts, i + 1, next, i, posts.length - i - 1);
+      return new Snapshot(next, exhaustive);
+    }
+
+    Snapshot addCounts(long postId, long comments, long likes, long favorites) {
+      int i = indexOf(postId);
+      if (i < 0) return this;
+      PostDTO dto = copy(posts[i]);
+      dto.setCommentCount(Math.max(0L, dto.getCommentCount() + comments));
+      dto.setLikeCount(Math.max(0L, dto.getLikeCount() + likes));
+      dto.setFavoriteCount(Math.max(0L, dto.getFavoriteCount() + favorites));
+      PostDTO[] next = posts.clone();
+      next[i] = dto;
+      return new Snapshot(next, exhaustive);
+    }
+  }
+}
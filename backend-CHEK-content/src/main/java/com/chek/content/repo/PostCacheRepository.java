@@ -0,0 +1,96 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Read-through Redis cache of post detail (PostDTO without viewer fields), keyed by post id.
+// Entries expire after CHEK_POST_CACHE_TTL_SECONDS plus a random jitter so hot posts cached together
+// do not all miss at once. Writers evict both immediately and after commit, so a reader that
+// repopulates between the two cannot leave a pre-commit row behind.
+@Repository
+public class PostCacheRepository {
+  private static final Logger log = LoggerFactory.getLogger(PostCacheRepository.class);
+
+  private static final String KEY_PREFIX = "chek:content:post:";
+
+  private final StringRedisTemplate redis;
+  private final ObjectMapper objectMapper;
+  private final long ttlSeconds;
+  private final long jitterSeconds;
+
+  public PostCacheRepository(
+      ObjectProvider<StringRedisTemplate> redisProvider,
+      ObjectMapper objectMapper,
+      @Value("${CHEK_POST_CACHE_ENABLED:false}") boolean enabled,
+      @Value("${CHEK_POST_CACHE_TTL_SECONDS:300}") long ttlSeconds,
+      @Value("${CHEK_POST_CACHE_TTL_JITTER_SECONDS:60}") long jitterSeconds) {
+    this.redis = enabled ? redisProvider.getIfAvailable() : null;
+    this.objectMapper = objectMapper;
+    this.ttlSeconds = Math.max(1L, ttlSeconds);
+    this.jitterSeconds = Math.max(0L, jitterSeconds);
+  }
+
+  // Returns a fresh copy each call, so callers may overlay viewer fields on it.
+  public PostDTO get(long postId, LongFunction<PostDTO> loader) {
+    if (redis == null) return loader.apply(postId);
+    String key = key(postId);
+    try {
+      String json = redis.opsForValue().get(key);
+      if (json != null) return objectMapper.readValue(json, PostDTO.class);
+    } catch (Exception e) {
+      log.debug("post cache read failed, falling back to db: {}", e.getMessage());
+      return loader.apply(postId);
+    }
+
+    PostDTO dto = loader.apply(postId);
+    if (dto == null) return null;
+    try {
+      redis.opsForValue().set(key, objectMapper.writeValueAsString(dto), ttl());
+    } catch (Exception e) {
+      log.debug("post cache write failed: {}", e.getMessage());
+    }
+    return dto;
+  }
+
+  public void evict(long postId) {
+    if (redis == null) return;
+    delete(postId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              delete(postId);
+            }
+          });
+    }
+  }
+
+  private void delete(long postId) {
+    try {
+      redis.delete(key(postId));
+    } catch (Exception e) {
+      log.warn("post cache evict failed for post {}: {}", postId, e.getMessage());
+    }
+  }
+
+  private Duration ttl() {
+    long jitter = jitterSeconds == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterSeconds + 1);
+    return Duration.ofSeconds(ttlSeconds + jitter);
+  }
+
+  private static String key(long postId) {
+    return KEY_PREFIX + postId;
+  }
+}
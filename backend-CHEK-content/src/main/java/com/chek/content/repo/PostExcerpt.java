@@ -0,0 +1,97 @@
+package com.chek.content.repo;
+
+import org.commonmark.node.AbstractVisitor;
+import org.commonmark.node.Block;
+import org.commonmark.node.Code;
+import org.commonmark.node.FencedCodeBlock;
+import org.commonmark.node.HardLineBreak;
+import org.commonmark.node.Image;
+import org.commonmark.node.IndentedCodeBlock;
+import org.commonmark.node.Node;
+import org.commonmark.node.SoftLineBreak;
+import org.commonmark.node.Text;
+import org.commonmark.parser.Parser;
+
+// Feed preview of a post body, computed when the post is written and stored next to it so list
+// queries with fields=summary never read body_md: the first EXCERPT_CODE_POINTS of the plain text
+// (markdown stripped, whitespace collapsed), the plain-text length in code points, and the URL of
+// the first markdown image.
+final class PostExcerpt {
+  static final int EXCERPT_CODE_POINTS = 140;
+  private static final int MAX_IMAGE_URL = 1024;
+  private static final Parser PARSER = Parser.builder().build();
+
+  final String excerpt;
+  final int textLength;
+  final String firstImageUrl;
+
+  private PostExcerpt(String excerpt, int textLength, String firstImageUrl) {
+    this.excerpt = excerpt;
+    this.textLength = textLength;
+    this.firstImageUrl = firstImageUrl;
+  }
+
+  static PostExcerpt of(String body) {
+    if (body == null || body.isBlank()) return new PostExcerpt("", 0, null);
+    StringBuilder text = new StringBuilder(body.length());
+    String[] image = new String[1];
+    PARSER
+        .parse(body)
+        .accept(
+            new AbstractVisitor() {
+              @Override
+              public void visit(Text node) {
+                text.append(node.getLiteral());
+              }
+
+              @Override
+              public void visit(Code node) {
+                text.append(node.getLiteral());
+              }
+
+              @Override
+              public void visit(FencedCodeBlock node) {
+                text.append(' ').append(node.getLiteral()).append(' ');
+              }
+
+              @Override
+              public void visit(IndentedCodeBlock node) {
+                text.append(' ').append(node.getLiteral()).append(' ');
+              }
+
+              @Override
+              public void visit(SoftLineBreak node) {
+                text.append(' ');
+              }
+
+              @Override
+              public void visit(HardLineBreak node) {
+                text.append(' ');
+              }
+
+              @Override
+              public void visit(Image node) {
+                String url = node.getDestination();
+                if (image[0] == null && url != null && !url.isBlank() && url.length() <= MAX_IMAGE_URL) {
+                  image[0] = url.trim();
+                }
+                // Alt text is not part of the prose.
+              }
+
+              @Override
+              protected void visitChildren(Node parent) {
+                super.visitChildren(parent);
+                // Block boundaries separate words.
+                if (parent instanceof Block) text.append(' ');
+              }
+            });
+
+    String plain = text.toString().replaceAll("\\s+", " ").trim();
+    int length = plain.codePointCount(0, plain.length());
+    String excerpt = plain;
+    if (length > EXCERPT_CODE_POINTS) {
+      excerpt = plain.substring(0, plain.offsetByCodePoints(0, EXCERPT_CODE_POINTS)).trim() + "…";
+    }
+    return new PostExcerpt(excerpt, length, image[0]);
+  }
+}
@@ -0,0 +1,102 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import com.chek.content.model.post.PostMediaDTO;
+import com.chek.content.model.post.PostWikiLinkDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Loads tags/media/wiki links for a whole page with one IN (...) query each instead of two queries per row.
+@Repository
+public class PostHydrator {
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public PostHydrator(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public void hydrate(PostDTO post) {
+    if (post == null) return;
+    hydrate(List.of(post));
+  }
+
+  public void hydrate(List<PostDTO> posts) {
+    if (posts == null || posts.isEmpty()) return;
+    List<Long> ids = new ArrayList<>(new LinkedHashSet<>(posts.stream().map(PostDTO::getPostId).toList()));
+
+    Map<Long, List<String>> tagsByPost = new HashMap<>();
+    Map<Long, List<PostMediaDTO>> mediaByPost = new HashMap<>();
+    Map<Long, List<PostWikiLinkDTO>> linksByPost = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+      List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+      loadTags(chunk, tagsByPost);
+      loadMedia(chunk, mediaByPost);
+      loadWikiLinks(chunk, linksByPost);
+    }
+
+    for (PostDTO dto : posts) {
+      dto.setTags(tagsByPost.getOrDefault(dto.getPostId(), Collections.emptyList()));
+      dto.setMedia(mediaByPost.getOrDefault(dto.getPostId(), Collections.emptyList()));
+      dto.setWikiLinks(linksByPost.getOrDefault(dto.getPostId(), Collections.emptyList()));
+    }
+  }
+
+  private void loadTags(List<Long> postIds, Map<Long, List<String>> out) {
+    jdbcTemplate.query(
+        "SELECT pt.post_id, t.name FROM chek_content_post_tag pt "
+            + "JOIN chek_content_tag t ON t.id = pt.tag_id "
+            + "WHERE pt.post_id IN ("
+            + placeholders(postIds.size())
+            + ") ORDER BY pt.post_id ASC, t.id ASC",
+        rs -> {
+          out.computeIfAbsent(rs.getLong("post_id"), k -> new ArrayList<>()).add(rs.getString("name"));
+        },
+        postIds.toArray());
+  }
+
+  private void loadMedia(List<Long> postIds, Map<Long, List<PostMediaDTO>> out) {
+    jdbcTemplate.query(
+        "SELECT post_id, media_object_id, kind FROM chek_content_post_media "
+            + "WHERE post_id IN ("
+            + placeholders(postIds.size())
+            + ") ORDER BY post_id ASC, media_object_id ASC",
+        rs -> {
+          PostMediaDTO dto = new PostMediaDTO();
+          dto.setMediaObjectId(rs.getLong("media_object_id"));
+          dto.setKind(rs.getString("kind"));
+          out.computeIfAbsent(rs.getLong("post_id"), k -> new ArrayList<>()).add(dto);
+        },
+        postIds.toArray());
+  }
+
+  // Links to entries that have since been hidden are left out.
+  private void loadWikiLinks(List<Long> postIds, Map<Long, List<PostWikiLinkDTO>> out) {
+    jdbcTemplate.query(
+        "SELECT l.post_id, l.entry_id, e.slug, l.start_offset, l.span_length FROM chek_content_post_wiki_link l "
+            + "JOIN chek_content_wiki_entry e ON e.id = l.entry_id "
+            + "WHERE e.is_public = TRUE AND e.is_indexable = TRUE AND l.post_id IN ("
+            + placeholders(postIds.size())
+            + ") ORDER BY l.post_id ASC, l.start_offset ASC",
+        rs -> {
+          PostWikiLinkDTO dto = new PostWikiLinkDTO();
+          dto.setEntryId(rs.getLong("entry_id"));
+          dto.setSlug(rs.getString("slug"));
+          dto.setStart(rs.getInt("start_offset"));
+          dto.setLength(rs.getInt("span_length"));
+          out.computeIfAbsent(rs.getLong("post_id"), k -> new ArrayList<>()).add(dto);
+        },
+        postIds.toArray());
+  }
+
+  private static String placeholders(int n) {
+    return String.join(",", Collections.nCopies(n, "?"));
+  }
+}
@@ -1,58 +1,105 @@
 package com.chek.content.repo;
 
 import com.chek.content.model.comment.CommentDTO;
+import com.chek.content.model.comment.CommentNodeDTO;
+import com.chek.content.model.comment.CommentTreeDTO;
 import com.chek.content.model.comment.CreateCommentRequest;
 import com.chek.content.model.post.CreatePostRequest;
 import com.chek.content.model.post.CreatePostMediaItem;
 import com.chek.content.model.post.IngestExternalPostRequest;
 import com.chek.content.model.post.PostDTO;
-import com.chek.content.model.post.PostMediaDTO;
+import com.chek.content.search.GeoIndexService;
+import com.chek.content.search.SearchIndexService;
+import com.chek.content.search.TagIndexService;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Repository
 public class PostRepository {
+  private static final int MAX_FILTER_CANDIDATES = 2000;
+
+  static final String POST_SELECT = postSelect(true);
+  // fields=summary: everything but body_md, so list pages never read the TEXT column.
+  static final String POST_SUMMARY_SELECT = postSelect(false);
+
   private final JdbcTemplate jdbcTemplate;
+  private final PostHydrator postHydrator;
+  private final PostStatsRepository postStatsRepository;
+  private final ViewerStateRepository viewerStateRepository;
+  private final SearchIndexService searchIndexService;
+  private final TagIndexService tagIndexService;
+  private final PostCacheRepository postCacheRepository;
+  private final LatestFeedBuffer latestFeedBuffer;
+  private final GeoIndexService geoIndexService;
+  private final TagDictionary tagDictionary;
+  private final ChangeLogRepository changeLogRepository;
+  private final PostWikiLinkRepository postWikiLinkRepository;
+  private final SocialWriteBuffer socialWriteBuffer;
 
-  public PostRepository(JdbcTemplate jdbcTemplate) {
+  public PostRepository(
+      JdbcTemplate jdbcTemplate,
+      PostHydrator postHydrator,
+      PostStatsRepository postStatsRepository,
+      ViewerStateRepository viewerStateRepository,
+      SearchIndexService searchIndexService,
+      TagIndexService tagIndexService,
+      PostCacheRepository postCacheRepository,
+      LatestFeedBuffer latestFeedBuffer,
+      GeoIndexService geoIndexService,
+      TagDictionary tagDictionary,
+      ChangeLogRepository changeLogRepository,
+      PostWikiLinkRepository postWikiLinkRepository,
+      SocialWriteBuffer socialWriteBuffer) {
     this.jdbcTemplate = jdbcTemplate;
+    this.postHydrator = postHydrator;
+    this.postStatsRepository = postStatsRepository;
+    this.viewerStateRepository = viewerStateRepository;
+    this.searchIndexService = searchIndexService;
+    this.tagIndexService = tagIndexService;
+    this.postCacheRepository = postCacheRepository;
+    this.latestFeedBuffer = latestFeedBuffer;
+    this.geoIndexService = geoIndexService;
+    this.tagDictionary = tagDictionary;
+    this.changeLogRepository = changeLogRepository;
+    this.postWikiLinkRepository = postWikiLinkRepository;
+    this.socialWriteBuffer = socialWriteBuffer;
   }
 
-  public PostDTO upsertExternal(IngestExternalPostRequest req) {
+  @Transactional
+  public UpsertResult upsertExternal(IngestExternalPostRequest req) {
     String platform = (req.getSourcePlatform() == null) ? "" : req.getSourcePlatform().trim();
     String sourceId = (req.getSourceId() == null) ? "" : req.getSourceId().trim();
     if (platform.isBlank() || sourceId.isBlank()) {
       throw new IllegalArgumentException("missing sourcePlatform/sourceId");
     }
+    String contentHash = ExternalPostHash.of(req);
+    PostExcerpt excerpt = PostExcerpt.of(req.getBody());
 
-    Long existingId = findPostIdBySource(platform, sourceId);
-    if (existingId != null) {
-      jdbcTemplate.update(
-          "UPDATE chek_content_post SET title = ?, body_md = ?, occurred_at = ?, location_name = ?, lng = ?, lat = ?, source_url = ?, updated_at = NOW() "
-              + "WHERE id = ?",
-          req.getTitle(),
-          req.getBody(),
-          req.getOccurredAt() == null ? null : Timestamp.from(req.getOccurredAt()),
-          req.getLocationName(),
-          req.getLng() == null ? null : BigDecimal.valueOf(req.getLng()),
-          req.getLat() == null ? null : BigDecimal.valueOf(req.getLat()),
-          req.getSourceUrl(),
-          existingId);
-      jdbcTemplate.update("DELETE FROM chek_content_post_tag WHERE post_id = ?", existingId);
-      upsertPostTags(existingId, req.getTags());
-      return get(existingId);
-    }
+    Object[] existing = findSourceRow(platform, sourceId);
+    if (existing != null) return updateExternal(existing, req, contentHash, excerpt);
 
     String author = (req.getAuthorUserOneId() == null) ? "" : req.getAuthorUserOneId().trim();
     if (author.isBlank()) author = "投诉雷达";
@@ -66,8 +113,8 @@ public class PostRepository {
           conn -> {
             PreparedStatement ps =
                 conn.prepareStatement(
-                    "INSERT INTO chek_content_post(title, body_md, is_public, is_indexable, occurred_at, location_name, lng, lat, author_user_one_id, source_platform, source_id, source_url, created_at, updated_at) "
-                        + "VALUES(?, ?, TRUE, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())",
+                    "INSERT INTO chek_content_post(title, body_md, is_public, is_indexable, occurred_at, location_name, lng, lat, author_user_one_id, source_platform, source_id, source_url, content_hash, excerpt, text_length, first_image_url, created_at, updated_at) "
+                        + "VALUES(?, ?, TRUE, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())",
                     new String[] {"id"});
             ps.setString(1, req.getTitle());
             ps.setString(2, req.getBody());
@@ -79,80 +126,193 @@ public class PostRepository {
             ps.setString(8, platformFinal);
             ps.setString(9, sourceIdFinal);
             ps.setString(10, req.getSourceUrl());
+            ps.setString(11, contentHash);
+            ps.setString(12, excerpt.excerpt);
+            ps.setInt(13, excerpt.textLength);
+            ps.setString(14, excerpt.firstImageUrl);
             return ps;
           },
           keyHolder);
     } catch (DataIntegrityViolationException ignored) {
-      // Likely duplicate source unique index in a race; fall through to fetch.
+      // Likely duplicate source unique index in a race; handled below.
     }
 
-    Long createdId =
-        keyHolder.getKey() == null
-            ? findPostIdBySource(platform, sourceId)
-            : Long.valueOf(keyHolder.getKey().longValue());
-    if (createdId == null) {
-      throw new IllegalStateException("failed to upsert external post");
+    if (keyHolder.getKey() == null) {
+      // A concurrent writer inserted the source first: treat its row like an existing one, so the
+      // status says whether our content was actually written.
+      Object[] raced = findSourceRow(platform, sourceId);
+      if (raced == null) throw new IllegalStateException("insert ignored but no post found for this source");
+      return updateExternal(raced, req, contentHash, excerpt);
     }
 
+    long createdId = keyHolder.getKey().longValue();
+    postStatsRepository.ensureRow(createdId);
     upsertPostTags(createdId, req.getTags());
-    return get(createdId);
+    postWikiLinkRepository.replace(Collections.singletonMap(createdId, req.getBody()));
+    changeLogRepository.record(ChangeLogRepository.POST, createdId, ChangeLogRepository.UPSERT);
+    return new UpsertResult(afterWrite(get(createdId)), "created");
   }
 
-  private Long findPostIdBySource(String platform, String sourceId) {
-    List<Long> list =
+  // row: {id, content_hash} from findSourceRow.
+  private UpsertResult updateExternal(
+      Object[] row, IngestExternalPostRequest req, String contentHash, PostExcerpt excerpt) {
+    long existingId = (Long) row[0];
+    // Same content as last time: leave the row, its tags and updated_at alone.
+    if (contentHash.equals(row[1])) {
+      return new UpsertResult(getCached(existingId, null), "unchanged");
+    }
+    jdbcTemplate.update(
+        "UPDATE chek_content_post SET title = ?, body_md = ?, occurred_at = ?, location_name = ?, lng = ?, lat = ?, source_url = ?, content_hash = ?, "
+            + "excerpt = ?, text_length = ?, first_image_url = ?, version = version + 1, updated_at = NOW() WHERE id = ?",
+        req.getTitle(),
+        req.getBody(),
+        req.getOccurredAt() == null ? null : Timestamp.from(req.getOccurredAt()),
+        req.getLocationName(),
+        req.getLng() == null ? null : BigDecimal.valueOf(req.getLng()),
+        req.getLat() == null ? null : BigDecimal.valueOf(req.getLat()),
+        req.getSourceUrl(),
+        contentHash,
+        excerpt.excerpt,
+        excerpt.textLength,
+        excerpt.firstImageUrl,
+        existingId);
+    jdbcTemplate.update("DELETE FROM chek_content_post_tag WHERE post_id = ?", existingId);
+    upsertPostTags(existingId, req.getTags());
+    postWikiLinkRepository.replace(Collections.singletonMap(existingId, req.getBody()));
+    changeLogRepository.record(ChangeLogRepository.POST, existingId, ChangeLogRepository.UPSERT);
+    return new UpsertResult(afterWrite(get(existingId)), "updated");
+  }
+
+  // status: created | updated | unchanged, as in IngestBulkResult.
+  public static class UpsertResult {
+    public final PostDTO post;
+    public final String status;
+
+    UpsertResult(PostDTO post, String status) {
+      this.post = post;
+      this.status = status;
+    }
+  }
+
+  // {id, content_hash} of the post holding the source (as the column collation compares), or null.
+  private Object[] findSourceRow(String platform, String sourceId) {
+    List<Object[]> list =
         jdbcTemplate.query(
-            "SELECT id FROM chek_content_post WHERE source_platform = ? AND source_id = ? LIMIT 1",
-            (rs, rowNum) -> rs.getLong("id"),
+            "SELECT id, content_hash FROM chek_content_post WHERE source_platform = ? AND source_id = ? LIMIT 1",
+            (rs, rowNum) -> new Object[] {rs.getLong("id"), rs.getString("content_hash")},
             platform,
             sourceId);
     return list.isEmpty() ? null : list.get(0);
   }
 
-  public List<PostDTO> list(
+
+  // Newest first, continued by the last id; search results (query with the index ready) are in
+  // relevance order and continued by a SearchCursor rank token instead. The next token is returned
+  // either way.
+  public PostPage list(
       String query,
       List<String> tags,
+      boolean matchAllTags,
       String authorUserOneId,
       String viewerUserOneId,
-      Long cursor,
-      int limit) {
+      String cursor,
+      int limit,
+      boolean summary) {
     int n = Math.max(1, Math.min(limit, 100));
-    long cur = cursor == null ? 0L : cursor;
     List<String> tagNames = normalizeTags(tags);
-    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
-    boolean hasViewer = !viewer.isBlank();
 
-    StringBuilder sql = new StringBuilder();
-    List<Object> args = new ArrayList<>();
+    boolean hasQuery = query != null && !query.isBlank();
+    boolean hasAuthor = authorUserOneId != null && !authorUserOneId.isBlank();
+    boolean idCursor = SearchCursor.isIdCursor(cursor);
+    if (hasQuery && searchIndexReady(tagNames, hasAuthor) && (!idCursor || SearchCursor.beforeId(cursor) == 0)) {
+      String rankCursor = idCursor ? null : cursor;
+      return listSearch(query, tagNames, matchAllTags, authorUserOneId, viewerUserOneId, rankCursor, n, summary);
+    }
+    if (!idCursor) throw new IllegalArgumentException("invalid cursor");
+    long cur = SearchCursor.beforeId(cursor);
+    return idPage(listBefore(query, tagNames, matchAllTags, authorUserOneId, viewerUserOneId, cur, n, summary), n);
+  }
+
+  // Author/tag filters run inside the search index, so they need the tag index too.
+  private boolean searchIndexReady(List<String> tagNames, boolean hasAuthor) {
+    return searchIndexService.isPostIndexReady()
+        && ((tagNames.isEmpty() && !hasAuthor) || tagIndexService.isPostIndexReady());
+  }
+
+  private PostPage listSearch(
+      String query,
+      List<String> tagNames,
+      boolean matchAllTags,
+      String authorUserOneId,
+      String viewerUserOneId,
+      String cursor,
+      int n,
+      boolean summary) {
+    int offset = SearchCursor.offset(cursor);
+    SearchIndexService.Ranked ranked =
+        searchIndexService.rankPosts(
+            query, tagIndexService.postFilter(tagNames, matchAllTags, authorUserOneId), offset, n);
+    List<PostDTO> list = listByRankedIds(SearchCursor.from(ranked.ids, offset), List.of(), false, null, n, summary);
+    postHydrator.hydrate(list);
+    socialWriteBuffer.overlayCounts(list);
+    viewerStateRepository.apply(list, viewerUserOneId);
+    String next =
+        list.isEmpty()
+            ? null
+            : SearchCursor.next(ranked.ids, offset, list.size(), n, list.get(list.size() - 1).getPostId());
+    return new PostPage(list, next, next == null && ranked.truncated);
+  }
+
+  private static PostPage idPage(List<PostDTO> list, int n) {
+    String next = list.size() >= n ? String.valueOf(list.get(list.size() - 1).getPostId()) : null;
+    return new PostPage(list, next);
+  }
 
-    sql.append("SELECT ");
-    if (!tagNames.isEmpty()) {
-      sql.append("DISTINCT ");
+  private List<PostDTO> listBefore(
+      String query,
+      List<String> tagNames,
+      boolean matchAllTags,
+      String authorUserOneId,
+      String viewerUserOneId,
+      long cur,
+      int n,
+      boolean summary) {
+    boolean hasQuery = query != null && !query.isBlank();
+    boolean hasAuthor = authorUserOneId != null && !authorUserOneId.isBlank();
+    if (!hasQuery && !hasAuthor && tagNames.isEmpty()) {
+      List<PostDTO> latest = latestFeedBuffer.page(cur, n);
+      if (latest != null) {
+        if (summary) latest.forEach(dto -> dto.setBody(null));
+        socialWriteBuffer.overlayCounts(latest);
+        viewerStateRepository.apply(latest, viewerUserOneId);
+        return latest;
+      }
     }
-    sql.append(
-        "p.id, p.title, p.body_md, p.location_name, p.lng, p.lat, p.occurred_at, "
-            + "p.author_user_one_id, p.is_public, p.is_indexable, p.created_at, p.updated_at, "
-            + "p.source_platform, p.source_id, p.source_url, "
-            + "(SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id) AS comment_count, "
-            + "(SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id) AS like_count, "
-            + "(SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id) AS favorite_count, ");
-
-    if (hasViewer) {
-      sql.append(
-          "EXISTS(SELECT 1 FROM chek_content_post_like l2 WHERE l2.post_id = p.id AND l2.user_one_id = ?) AS liked_by_me, "
-              + "EXISTS(SELECT 1 FROM chek_content_post_favorite f2 WHERE f2.post_id = p.id AND f2.user_one_id = ?) AS favorited_by_me ");
-      args.add(viewer);
-      args.add(viewer);
-    } else {
-      sql.append("FALSE AS liked_by_me, FALSE AS favorited_by_me ");
+
+    List<Long> candidates = null;
+    if (hasQuery && searchIndexReady(tagNames, hasAuthor)) {
+      // Numeric cursor on a search: matches below it, newest first, filters applied in the index.
+      // Twice the page, so a few ids gone from MySQL do not end the page early.
+      candidates =
+          searchIndexService.searchPostsBefore(
+              query, tagIndexService.postFilter(tagNames, matchAllTags, authorUserOneId), cur, n * 2);
+    } else if (!hasQuery && !hasAuthor && !tagNames.isEmpty() && tagIndexService.isPostIndexReady()) {
+      // Author + tags stays on SQL: the newest tagged ids say nothing about how far back the
+      // author's tagged posts are.
+      candidates = tagIndexService.postIdsBefore(tagNames, matchAllTags, cur, n);
+    }
+    if (candidates != null) {
+      List<PostDTO> list = listByRankedIds(candidates, List.of(), false, null, n, summary);
+      postHydrator.hydrate(list);
+      socialWriteBuffer.overlayCounts(list);
+      viewerStateRepository.apply(list, viewerUserOneId);
+      return list;
     }
 
-    sql.append("FROM chek_content_post p ");
+    StringBuilder sql = new StringBuilder();
+    List<Object> args = new ArrayList<>();
 
-    if (!tagNames.isEmpty()) {
-      sql.append(
-          "JOIN chek_content_post_tag pt ON p.id = pt.post_id "
-              + "JOIN chek_content_tag t ON pt.tag_id = t.id ");
-    }
+    sql.append(summary ? POST_SUMMARY_SELECT : POST_SELECT);
 
     sql.append("WHERE p.is_public = TRUE ");
     sql.append("AND p.is_indexable = TRUE ");
@@ -174,12 +334,7 @@ public class PostRepository {
       args.add(authorUserOneId.trim());
     }
 
-    if (!tagNames.isEmpty()) {
-      sql.append("AND t.name IN (");
-      sql.append(String.join(",", Collections.nCopies(tagNames.size(), "?")));
-      sql.append(") ");
-      args.addAll(tagNames);
-    }
+    appendTagFilter(sql, args, tagNames, matchAllTags);
 
     sql.append("ORDER BY p.id DESC LIMIT ? ");
     args.add(n);
@@ -187,114 +342,172 @@ public class PostRepository {
     List<PostDTO> list =
         jdbcTemplate.query(
             sql.toString(),
-            (rs, rowNum) -> {
-              PostDTO dto = new PostDTO();
-              dto.setPostId(rs.getLong("id"));
-              dto.setTitle(rs.getString("title"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setLocationName(rs.getString("location_name"));
-              dto.setLng(toNullableDouble(rs.getBigDecimal("lng")));
-              dto.setLat(toNullableDouble(rs.getBigDecimal("lat")));
-              Timestamp occurredAt = rs.getTimestamp("occurred_at");
-              dto.setOccurredAt(occurredAt == null ? null : occurredAt.toInstant());
-              dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-              dto.setSourcePlatform(rs.getString("source_platform"));
-              dto.setSourceId(rs.getString("source_id"));
-              dto.setSourceUrl(rs.getString("source_url"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              dto.setCommentCount(rs.getLong("comment_count"));
-              dto.setLikeCount(rs.getLong("like_count"));
-              dto.setFavoriteCount(rs.getLong("favorite_count"));
-              dto.setLikedByMe(rs.getBoolean("liked_by_me"));
-              dto.setFavoritedByMe(rs.getBoolean("favorited_by_me"));
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
+            (rs, rowNum) -> mapPost(rs, !summary),
             args.toArray());
 
-    for (PostDTO dto : list) {
-      dto.setTags(listTagNamesByPostId(dto.getPostId()));
-      dto.setMedia(listMediaByPostId(dto.getPostId()));
-    }
+    postHydrator.hydrate(list);
+    socialWriteBuffer.overlayCounts(list);
+    viewerStateRepository.apply(list, viewerUserOneId);
     return list;
   }
 
+  // Fetches visible posts for the given ids, keeping the caller's order and applying the optional
+  // author/tag filters, until n posts are collected.
+  private List<PostDTO> listByRankedIds(
+      List<Long> rankedIds,
+      List<String> tagNames,
+      boolean matchAllTags,
+      String authorUserOneId,
+      int n,
+      boolean summary) {
+    List<PostDTO> out = new ArrayList<>();
+    int chunkSize = Math.max(50, n * 2);
+    for (int from = 0; from < rankedIds.size() && out.size() < n; from += chunkSize) {
+      List<Long> chunk = rankedIds.subList(from, Math.min(rankedIds.size(), from + chunkSize));
+      StringBuilder sql =
+          new StringBuilder(
+              (summary ? POST_SUMMARY_SELECT : POST_SELECT)
+                  + "WHERE p.is_public = TRUE AND p.is_indexable = TRUE AND p.id IN (");
+      sql.append(String.join(",", Collections.nCopies(chunk.size(), "?")));
+      sql.append(") ");
+      List<Object> args = new ArrayList<>(chunk);
+
+      if (authorUserOneId != null && !authorUserOneId.isBlank()) {
+        sql.append("AND p.author_user_one_id = ? ");
+        args.add(authorUserOneId.trim());
+      }
+      appendTagFilter(sql, args, tagNames, matchAllTags);
+
+      Map<Long, PostDTO> byId = new HashMap<>();
+      for (PostDTO dto :
+          jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapPost(rs, !summary), args.toArray())) {
+        byId.put(dto.getPostId(), dto);
+      }
+      for (Long id : chunk) {
+        PostDTO dto = byId.get(id);
+        if (dto == null) continue;
+        out.add(dto);
+        if (out.size() >= n) break;
+      }
+    }
+    return out;
+  }
+
+  private static void appendTagFilter(
+      StringBuilder sql, List<Object> args, List<String> tagNames, boolean matchAll) {
+    if (tagNames.isEmpty()) return;
+    sql.append(
+        "AND p.id IN (SELECT pt.post_id FROM chek_content_post_tag pt "
+            + "JOIN chek_content_tag t ON pt.tag_id = t.id WHERE t.name IN (");
+    sql.append(String.join(",", Collections.nCopies(tagNames.size(), "?")));
+    sql.append(") ");
+    args.addAll(tagNames);
+    if (matchAll) {
+      sql.append("GROUP BY pt.post_id HAVING COUNT(DISTINCT pt.tag_id) = ? ");
+      args.add(tagNames.size());
+    }
+    sql.append(") ");
+  }
+
   public PostDTO get(long postId) {
     return get(postId, null);
   }
 
   public PostDTO get(long postId, String viewerUserOneId) {
-    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
-    boolean hasViewer = !viewer.isBlank();
-    List<Object> args = new ArrayList<>();
+    PostDTO dto = load(postId);
+    if (dto != null) {
+      socialWriteBuffer.overlayCounts(List.of(dto));
+      viewerStateRepository.apply(List.of(dto), viewerUserOneId);
+    }
+    return dto;
+  }
 
-    if (hasViewer) {
-      args.add(viewer);
-      args.add(viewer);
+  // Detail read for GET /v1/posts/{id}: served from the post cache, viewer fields applied per call.
+  public PostDTO getCached(long postId, String viewerUserOneId) {
+    PostDTO dto = postCacheRepository.get(postId, this::load);
+    if (dto != null) {
+      socialWriteBuffer.overlayCounts(List.of(dto));
+      viewerStateRepository.apply(List.of(dto), viewerUserOneId);
     }
-    args.add(postId);
+    return dto;
+  }
 
+  // As stored: no buffered like/favorite deltas, no viewer fields.
+  private PostDTO load(long postId) {
     List<PostDTO> list =
         jdbcTemplate.query(
-            "SELECT p.id, p.title, p.body_md, p.location_name, p.lng, p.lat, p.occurred_at, "
-                + "p.author_user_one_id, p.is_public, p.is_indexable, p.created_at, p.updated_at, "
-                + "p.source_platform, p.source_id, p.source_url, "
-                + "(SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id) AS comment_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id) AS like_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id) AS favorite_count, "
-                + (hasViewer
-                    ? "EXISTS(SELECT 1 FROM chek_content_post_like l2 WHERE l2.post_id = p.id AND l2.user_one_id = ?) AS liked_by_me, "
-                        + "EXISTS(SELECT 1 FROM chek_content_post_favorite f2 WHERE f2.post_id = p.id AND f2.user_one_id = ?) AS favorited_by_me "
-                    : "FALSE AS liked_by_me, FALSE AS favorited_by_me ")
-                + "FROM chek_content_post p WHERE p.id = ?",
-            (rs, rowNum) -> {
-              PostDTO dto = new PostDTO();
-              dto.setPostId(rs.getLong("id"));
-              dto.setTitle(rs.getString("title"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setLocationName(rs.getString("location_name"));
-              dto.setLng(toNullableDouble(rs.getBigDecimal("lng")));
-              dto.setLat(toNullableDouble(rs.getBigDecimal("lat")));
-              Timestamp occurredAt = rs.getTimestamp("occurred_at");
-              dto.setOccurredAt(occurredAt == null ? null : occurredAt.toInstant());
-              dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-              dto.setSourcePlatform(rs.getString("source_platform"));
-              dto.setSourceId(rs.getString("source_id"));
-              dto.setSourceUrl(rs.getString("source_url"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              dto.setCommentCount(rs.getLong("comment_count"));
-              dto.setLikeCount(rs.getLong("like_count"));
-              dto.setFavoriteCount(rs.getLong("favorite_count"));
-              dto.setLikedByMe(rs.getBoolean("liked_by_me"));
-              dto.setFavoritedByMe(rs.getBoolean("favorited_by_me"));
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            args.toArray());
+            POST_SELECT + "WHERE p.id = ?",
+            (rs, rowNum) -> mapPost(rs),
+            postId);
 
     if (list.isEmpty()) return null;
     PostDTO dto = list.get(0);
-    dto.setTags(listTagNamesByPostId(dto.getPostId()));
-    dto.setMedia(listMediaByPostId(dto.getPostId()));
+    postHydrator.hydrate(dto);
     return dto;
   }
 
+  // Validator for GET /v1/posts/{id}: row version plus counters (and the viewer's like/favorite
+  // flags when there is a viewer), without touching tags, media or the post cache. Last-Modified is
+  // the later of the post and its stats row.
+  public EntityVersion version(long postId, String viewerUserOneId) {
+    String viewerSuffix = "";
+    if (viewerUserOneId != null && !viewerUserOneId.isBlank()) {
+      List<Long> ids = List.of(postId);
+      viewerSuffix =
+          "-"
+              + (viewerStateRepository.likedPostIds(viewerUserOneId, ids).isEmpty() ? 0 : 1)
+              + (viewerStateRepository.favoritedPostIds(viewerUserOneId, ids).isEmpty() ? 0 : 1);
+    }
+    String viewerSuffixFinal = viewerSuffix;
+    long likeDelta = socialWriteBuffer.delta(SocialWriteBuffer.Kind.LIKE, postId);
+    long favoriteDelta = socialWriteBuffer.delta(SocialWriteBuffer.Kind.FAVORITE, postId);
+    List<EntityVersion> list =
+        jdbcTemplate.query(
+            "SELECT p.version, p.updated_at, p.is_public, p.is_indexable, p.author_user_one_id, "
+                + "COALESCE(s.comment_count, 0) AS comment_count, "
+                + "COALESCE(s.like_count, 0) AS like_count, "
+                + "COALESCE(s.favorite_count, 0) AS favorite_count, "
+                + "s.updated_at AS stats_updated_at "
+                + "FROM chek_content_post p LEFT JOIN chek_content_post_stats s ON s.post_id = p.id WHERE p.id = ?",
+            (rs, rowNum) -> {
+              StringBuilder etag =
+                  new StringBuilder("W/\"p")
+                      .append(postId)
+                      .append('-')
+                      .append(rs.getLong("version"))
+                      .append('-')
+                      .append(rs.getLong("comment_count"))
+                      .append('.')
+                      .append(Math.max(0L, rs.getLong("like_count") + likeDelta))
+                      .append('.')
+                      .append(Math.max(0L, rs.getLong("favorite_count") + favoriteDelta));
+              etag.append(viewerSuffixFinal).append('"');
+              Timestamp updatedAt = rs.getTimestamp("updated_at");
+              Timestamp statsUpdatedAt = rs.getTimestamp("stats_updated_at");
+              long lastModified =
+                  Math.max(
+                      updatedAt == null ? 0L : updatedAt.getTime(),
+                      statsUpdatedAt == null ? 0L : statsUpdatedAt.getTime());
+              return new EntityVersion(
+                  etag.toString(),
+                  lastModified,
+                  rs.getBoolean("is_public") && rs.getBoolean("is_indexable"),
+                  rs.getString("author_user_one_id"));
+            },
+            postId);
+    return list.isEmpty() ? null : list.get(0);
+  }
+
+  @Transactional
   public PostDTO create(String userOneId, CreatePostRequest req) {
+    PostExcerpt excerpt = PostExcerpt.of(req.getBody());
     KeyHolder keyHolder = new GeneratedKeyHolder();
     jdbcTemplate.update(
         conn -> {
           PreparedStatement ps =
               conn.prepareStatement(
-                  "INSERT INTO chek_content_post(title, body_md, is_public, is_indexable, occurred_at, location_name, lng, lat, author_user_one_id, created_at, updated_at) "
-                      + "VALUES(?, ?, TRUE, TRUE, ?, ?, ?, ?, ?, NOW(), NOW())",
+                  "INSERT INTO chek_content_post(title, body_md, is_public, is_indexable, occurred_at, location_name, lng, lat, author_user_one_id, excerpt, text_length, first_image_url, created_at, updated_at) "
+                      + "VALUES(?, ?, TRUE, TRUE, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())",
                   new String[] {"id"});
           ps.setString(1, req.getTitle());
           ps.setString(2, req.getBody());
@@ -304,33 +517,96 @@ public class PostRepository {
           ps.setBigDecimal(5, req.getLng() == null ? null : BigDecimal.valueOf(req.getLng()));
           ps.setBigDecimal(6, req.getLat() == null ? null : BigDecimal.valueOf(req.getLat()));
           ps.setString(7, userOneId);
+          ps.setString(8, excerpt.excerpt);
+          ps.setInt(9, excerpt.textLength);
+          ps.setString(10, excerpt.firstImageUrl);
           return ps;
         },
         keyHolder);
     long id = keyHolder.getKey().longValue();
 
+    postStatsRepository.ensureRow(id);
     upsertPostTags(id, req.getTags());
     upsertPostMedia(id, req.getMedia());
-    return get(id);
+    postWikiLinkRepository.replace(Collections.singletonMap(id, req.getBody()));
+    changeLogRepository.record(ChangeLogRepository.POST, id, ChangeLogRepository.UPSERT);
+    return afterWrite(get(id));
   }
 
+  @Transactional
   public boolean delete(long postId, String userOneId, boolean isAdmin) {
     int updated;
     if (isAdmin) {
       updated =
           jdbcTemplate.update(
-              "UPDATE chek_content_post SET is_public = FALSE, is_indexable = FALSE, updated_at = NOW() "
+              "UPDATE chek_content_post SET is_public = FALSE, is_indexable = FALSE, version = version + 1, updated_at = NOW() "
                   + "WHERE id = ?",
               postId);
     } else {
       updated =
           jdbcTemplate.update(
-              "UPDATE chek_content_post SET is_public = FALSE, is_indexable = FALSE, updated_at = NOW() "
+              "UPDATE chek_content_post SET is_public = FALSE, is_indexable = FALSE, version = version + 1, updated_at = NOW() "
                   + "WHERE id = ? AND author_user_one_id = ?",
               postId,
               userOneId);
     }
-    return updated > 0;
+    if (updated <= 0) return false;
+    changeLogRepository.record(ChangeLogRepository.POST, postId, ChangeLogRepository.DELETE);
+    postCacheRepository.evict(postId);
+    afterCommit(
+        () -> {
+          latestFeedBuffer.remove(postId);
+          geoIndexService.removePost(postId);
+          searchIndexService.removePost(postId);
+          tagIndexService.setPostVisible(postId, false);
+        });
+    return true;
+  }
+
+  // Refreshes caches and in-memory indexes for posts written by ExternalPostBulkRepository.
+  public void afterBulkUpsert(List<Long> postIds) {
+    if (postIds.isEmpty()) return;
+    for (int from = 0; from < postIds.size(); from += MAX_FILTER_CANDIDATES) {
+      List<Long> chunk = postIds.subList(from, Math.min(postIds.size(), from + MAX_FILTER_CANDIDATES));
+      List<PostDTO> list =
+          jdbcTemplate.query(
+              POST_SELECT + "WHERE p.id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+              (rs, rowNum) -> mapPost(rs),
+              chunk.toArray());
+      postHydrator.hydrate(list);
+      for (PostDTO dto : list) afterWrite(dto);
+    }
+  }
+
+  // The in-memory feed and indexes are shared by all readers, so they only see committed rows: a
+  // rolled-back write must not surface in search, nearby or the latest feed.
+  private PostDTO afterWrite(PostDTO dto) {
+    if (dto == null) return null;
+    postCacheRepository.evict(dto.getPostId());
+    afterCommit(
+        () -> {
+          latestFeedBuffer.put(dto);
+          geoIndexService.indexPost(dto);
+          searchIndexService.indexPost(dto);
+          tagIndexService.setPostTags(dto.getPostId(), dto.getTags());
+          tagIndexService.setPostVisible(dto.getPostId(), dto.isPublic() && dto.isIndexable());
+          tagIndexService.setPostAuthor(dto.getPostId(), dto.getAuthorUserOneId());
+        });
+    return dto;
+  }
+
+  private static void afterCommit(Runnable r) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
   }
 
   public List<CommentDTO> listComments(long postId, Long cursor, int limit) {
@@ -339,23 +615,128 @@ public class PostRepository {
     return jdbcTemplate.query(
         "SELECT id, post_id, body, author_user_one_id, parent_comment_id, created_at "
             + "FROM chek_content_comment WHERE post_id = ? AND id < ? ORDER BY id DESC LIMIT ?",
-        (rs, rowNum) -> {
-          CommentDTO dto = new CommentDTO();
-          dto.setCommentId(rs.getLong("id"));
-          dto.setPostId(rs.getLong("post_id"));
-          dto.setBody(rs.getString("body"));
-          dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-          long parentId = rs.getLong("parent_comment_id");
-          dto.setParentCommentId(rs.wasNull() ? null : parentId);
-          Timestamp createdAt = rs.getTimestamp("created_at");
-          dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-          return dto;
-        },
+        (rs, rowNum) -> mapComment(rs, new CommentDTO()),
         postId,
         cur,
         n);
   }
 
+  // One level of a comment thread plus the first replyLimit replies of each node, in four queries.
+  // parentCommentId == null pages top-level comments newest first (cursor: id below); otherwise it
+  // pages that comment's replies oldest first (cursor: id above). A node's replyCursor is the cursor
+  // to pass with parentCommentId = its id for the rest of its replies, null when none are left.
+  public CommentTreeDTO listCommentTree(
+      long postId, Long parentCommentId, Long cursor, int limit, int replyLimit) {
+    int n = Math.max(1, Math.min(limit, 100));
+    int k = Math.max(0, Math.min(replyLimit, 20));
+
+    List<CommentNodeDTO> page;
+    if (parentCommentId == null) {
+      page =
+          jdbcTemplate.query(
+              "SELECT id, post_id, body, author_user_one_id, parent_comment_id, created_at "
+                  + "FROM chek_content_comment WHERE post_id = ? AND parent_comment_id IS NULL AND id < ? "
+                  + "ORDER BY id DESC LIMIT ?",
+              (rs, rowNum) -> mapComment(rs, new CommentNodeDTO()),
+              postId,
+              cursor == null || cursor <= 0 ? Long.MAX_VALUE : cursor,
+              n + 1);
+    } else {
+      page =
+          jdbcTemplate.query(
+              "SELECT id, post_id, body, author_user_one_id, parent_comment_id, created_at "
+                  + "FROM chek_content_comment WHERE post_id = ? AND parent_comment_id = ? AND id > ? "
+                  + "ORDER BY id ASC LIMIT ?",
+              (rs, rowNum) -> mapComment(rs, new CommentNodeDTO()),
+              postId,
+              parentCommentId,
+              cursor == null ? 0L : cursor,
+              n + 1);
+    }
+
+    CommentTreeDTO tree = new CommentTreeDTO();
+    if (page.size() > n) {
+      page = new ArrayList<>(page.subList(0, n));
+      tree.setNextCursor(page.get(n - 1).getCommentId());
+    }
+    tree.setItems(page);
+    if (page.isEmpty()) return tree;
+
+    List<Long> ids = page.stream().map(CommentNodeDTO::getCommentId).toList();
+    Map<Long, Long> counts = countReplies(postId, ids);
+    Map<Long, List<CommentNodeDTO>> repliesByParent = new HashMap<>();
+    List<CommentNodeDTO> replies = new ArrayList<>();
+    if (k > 0 && !counts.isEmpty()) {
+      List<Object> args = new ArrayList<>();
+      args.add(postId);
+      args.addAll(counts.keySet());
+      args.add(k);
+      replies =
+          jdbcTemplate.query(
+              "SELECT id, post_id, body, author_user_one_id, parent_comment_id, created_at FROM ("
+                  + "SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.parent_comment_id ORDER BY c.id ASC) AS rn "
+                  + "FROM chek_content_comment c WHERE c.post_id = ? AND c.parent_comment_id IN ("
+                  + String.join(",", Collections.nCopies(counts.size(), "?"))
+                  + ")) r WHERE r.rn <= ? ORDER BY parent_comment_id ASC, id ASC",
+              (rs, rowNum) -> mapComment(rs, new CommentNodeDTO()),
+              args.toArray());
+      for (CommentNodeDTO r : replies) {
+        repliesByParent.computeIfAbsent(r.getParentCommentId(), x -> new ArrayList<>()).add(r);
+      }
+    }
+
+    Map<Long, Long> replyCounts =
+        replies.isEmpty()
+            ? Collections.emptyMap()
+            : countReplies(postId, replies.stream().map(CommentNodeDTO::getCommentId).toList());
+    for (CommentNodeDTO r : replies) {
+      long c = replyCounts.getOrDefault(r.getCommentId(), 0L);
+      r.setReplyCount(c);
+      r.setReplies(Collections.emptyList());
+      r.setReplyCursor(c > 0 ? 0L : null);
+    }
+    for (CommentNodeDTO node : page) {
+      long c = counts.getOrDefault(node.getCommentId(), 0L);
+      List<CommentNodeDTO> children = repliesByParent.getOrDefault(node.getCommentId(), Collections.emptyList());
+      node.setReplyCount(c);
+      node.setReplies(children);
+      if (c > children.size()) {
+        node.setReplyCursor(children.isEmpty() ? 0L : children.get(children.size() - 1).getCommentId());
+      }
+    }
+    return tree;
+  }
+
+  private Map<Long, Long> countReplies(long postId, List<Long> parentIds) {
+    List<Object> args = new ArrayList<>();
+    args.add(postId);
+    args.addAll(parentIds);
+    Map<Long, Long> out = new HashMap<>();
+    jdbcTemplate.query(
+        "SELECT parent_comment_id, COUNT(1) AS n FROM chek_content_comment "
+            + "WHERE post_id = ? AND parent_comment_id IN ("
+            + String.join(",", Collections.nCopies(parentIds.size(), "?"))
+            + ") GROUP BY parent_comment_id",
+        rs -> {
+          out.put(rs.getLong("parent_comment_id"), rs.getLong("n"));
+        },
+        args.toArray());
+    return out;
+  }
+
+  private static <T extends CommentDTO> T mapComment(ResultSet rs, T dto) throws SQLException {
+    dto.setCommentId(rs.getLong("id"));
+    dto.setPostId(rs.getLong("post_id"));
+    dto.setBody(rs.getString("body"));
+    dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
+    long parentId = rs.getLong("parent_comment_id");
+    dto.setParentCommentId(rs.wasNull() ? null : parentId);
+    Timestamp createdAt = rs.getTimestamp("created_at");
+    dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+    return dto;
+  }
+
+  @Transactional
   public CommentDTO createComment(long postId, String userOneId, CreateCommentRequest req) {
     KeyHolder keyHolder = new GeneratedKeyHolder();
     jdbcTemplate.update(
@@ -377,26 +758,40 @@ public class PostRepository {
         },
         keyHolder);
     long id = keyHolder.getKey().longValue();
+    postStatsRepository.addCommentCount(postId, 1);
+    postCacheRepository.evict(postId);
     List<CommentDTO> list =
         jdbcTemplate.query(
             "SELECT id, post_id, body, author_user_one_id, parent_comment_id, created_at "
                 + "FROM chek_content_comment WHERE id = ?",
-            (rs, rowNum) -> {
-              CommentDTO dto = new CommentDTO();
-              dto.setCommentId(rs.getLong("id"));
-              dto.setPostId(rs.getLong("post_id"));
-              dto.setBody(rs.getString("body"));
-              dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-              long parentId = rs.getLong("parent_comment_id");
-              dto.setParentCommentId(rs.wasNull() ? null : parentId);
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              return dto;
-            },
+            (rs, rowNum) -> mapComment(rs, new CommentDTO()),
             id);
     return list.isEmpty() ? null : list.get(0);
   }
 
+  // Fills excerpt/text_length/first_image_url for posts written before they were stored. Returns
+  // the last post id scanned, or -1 when there is nothing left.
+  public long backfillExcerpts(long afterId, int batchSize) {
+    int n = Math.max(1, Math.min(batchSize, 5000));
+    List<Object[]> rows =
+        jdbcTemplate.query(
+            "SELECT id, body_md FROM chek_content_post WHERE id > ? AND text_length IS NULL ORDER BY id ASC LIMIT ?",
+            (rs, rowNum) -> new Object[] {rs.getLong("id"), rs.getString("body_md")},
+            afterId,
+            n);
+    if (rows.isEmpty()) return -1L;
+    List<Object[]> args = new ArrayList<>(rows.size());
+    for (Object[] r : rows) {
+      PostExcerpt e = PostExcerpt.of((String) r[1]);
+      args.add(new Object[] {e.excerpt, e.textLength, e.firstImageUrl, r[0]});
+    }
+    // Derived columns only: version/updated_at stay as they are.
+    jdbcTemplate.batchUpdate(
+        "UPDATE chek_content_post SET excerpt = ?, text_length = ?, first_image_url = ? WHERE id = ? AND text_length IS NULL",
+        args);
+    return (Long) rows.get(rows.size() - 1)[0];
+  }
+
   public List<PostDTO> listPublicForSsg(Instant updatedAfter, Long cursor, int limit) {
     int n = Math.max(1, Math.min(limit, 200));
     long cur = cursor == null ? 0L : cursor;
@@ -404,13 +799,7 @@ public class PostRepository {
 
     StringBuilder sql =
         new StringBuilder(
-            "SELECT p.id, p.title, p.body_md, p.location_name, p.lng, p.lat, p.occurred_at, "
-                + "p.author_user_one_id, p.is_public, p.is_indexable, p.created_at, p.updated_at, "
-                + "p.source_platform, p.source_id, p.source_url, "
-                + "(SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id) AS comment_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id) AS like_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id) AS favorite_count "
-                + "FROM chek_content_post p WHERE p.is_public = TRUE AND p.is_indexable = TRUE ");
+            POST_SELECT + "WHERE p.is_public = TRUE AND p.is_indexable = TRUE ");
 
     if (updatedAfter != null) {
       sql.append("AND p.updated_at > ? ");
@@ -427,124 +816,265 @@ public class PostRepository {
     List<PostDTO> list =
         jdbcTemplate.query(
             sql.toString(),
-            (rs, rowNum) -> {
-              PostDTO dto = new PostDTO();
-              dto.setPostId(rs.getLong("id"));
-              dto.setTitle(rs.getString("title"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setLocationName(rs.getString("location_name"));
-              dto.setLng(toNullableDouble(rs.getBigDecimal("lng")));
-              dto.setLat(toNullableDouble(rs.getBigDecimal("lat")));
-              Timestamp occurredAt = rs.getTimestamp("occurred_at");
-              dto.setOccurredAt(occurredAt == null ? null : occurredAt.toInstant());
-              dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-              dto.setSourcePlatform(rs.getString("source_platform"));
-              dto.setSourceId(rs.getString("source_id"));
-              dto.setSourceUrl(rs.getString("source_url"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              dto.setCommentCount(rs.getLong("comment_count"));
-              dto.setLikeCount(rs.getLong("like_count"));
-              dto.setFavoriteCount(rs.getLong("favorite_count"));
-              dto.setLikedByMe(false);
-              dto.setFavoritedByMe(false);
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
+            (rs, rowNum) -> mapPost(rs),
             args.toArray());
 
-    for (PostDTO dto : list) {
-      dto.setTags(listTagNamesByPostId(dto.getPostId()));
-      dto.setMedia(listMediaByPostId(dto.getPostId()));
-    }
+    postHydrator.hydrate(list);
     return list;
   }
 
-  public List<PostDTO> listFavorites(String userOneId, Long cursor, int limit) {
+  // Visible posts within radiusKm of (lat, lng), nearest first, keyset-paged on (distance, id).
+  public PostPage listNearby(
+      double lat,
+      double lng,
+      double radiusKm,
+      String viewerUserOneId,
+      String cursor,
+      int limit,
+      boolean summary) {
+    int n = Math.max(1, Math.min(limit, 100));
+    double afterKm = 0;
+    long afterId = 0;
+    if (cursor != null && !cursor.isBlank()) {
+      try {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        String[] parts = raw.split(":");
+        if (parts.length != 3 || !parts[0].equals("g1")) throw new IllegalArgumentException("invalid cursor");
+        afterKm = Double.parseDouble(parts[1]);
+        afterId = Long.parseLong(parts[2]);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("invalid cursor");
+      }
+    }
+
+    // Over-fetch a little: index entries can briefly point at posts hidden by another instance.
+    int window = n + Math.max(10, n / 2);
+    List<GeoIndexService.Hit> hits =
+        geoIndexService.isReady()
+            ? geoIndexService.nearby(lat, lng, radiusKm, afterKm, afterId, window)
+            : GeoIndexService.page(nearbyFromDb(lat, lng, radiusKm), afterKm, afterId, window);
+
+    Map<Long, GeoIndexService.Hit> byId = new HashMap<>();
+    for (GeoIndexService.Hit h : hits) byId.put(h.postId, h);
+    List<PostDTO> list = listByRankedIds(hits.stream().map(h -> h.postId).toList(), List.of(), false, null, n, summary);
+    postHydrator.hydrate(list);
+    socialWriteBuffer.overlayCounts(list);
+    viewerStateRepository.apply(list, viewerUserOneId);
+
+    // Continue after the last hit examined: the last post returned on a full page, otherwise the
+    // end of the window when hidden posts thinned it out and more hits may follow.
+    GeoIndexService.Hit last = null;
+    if (list.size() >= n) {
+      last = byId.get(list.get(list.size() - 1).getPostId());
+    } else if (hits.size() >= window) {
+      last = hits.get(hits.size() - 1);
+    }
+    String next = null;
+    if (last != null) {
+      String raw = "g1:" + last.distanceKm + ":" + last.postId;
+      next = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    return new PostPage(list, next);
+  }
+
+  private List<GeoIndexService.Hit> nearbyFromDb(double lat, double lng, double radiusKm) {
+    double dLat = GeoIndexService.latSpan(radiusKm);
+    double dLng = GeoIndexService.lngSpan(Math.min(90.0, Math.abs(lat) + dLat), radiusKm);
+    StringBuilder sql =
+        new StringBuilder(
+            "SELECT id, lat, lng FROM chek_content_post "
+                + "WHERE is_public = TRUE AND is_indexable = TRUE AND lat BETWEEN ? AND ? ");
+    List<Object> args = new ArrayList<>(List.of(BigDecimal.valueOf(lat - dLat), BigDecimal.valueOf(lat + dLat)));
+    if (dLng < 180.0 && lng - dLng >= -180.0 && lng + dLng <= 180.0) {
+      sql.append("AND lng BETWEEN ? AND ? ");
+      args.add(BigDecimal.valueOf(lng - dLng));
+      args.add(BigDecimal.valueOf(lng + dLng));
+    } else {
+      sql.append("AND lng IS NOT NULL ");
+    }
+    // Nearest first by equirectangular distance (ordering only; the exact distance is computed
+    // below), so the LIMIT keeps the closest candidates and every request sees the same ones.
+    double cosLat = Math.cos(Math.toRadians(lat));
+    sql.append("ORDER BY (lat - ?) * (lat - ?) + (lng - ?) * (lng - ?) * ?, id ASC LIMIT ?");
+    args.add(BigDecimal.valueOf(lat));
+    args.add(BigDecimal.valueOf(lat));
+    args.add(BigDecimal.valueOf(lng));
+    args.add(BigDecimal.valueOf(lng));
+    args.add(cosLat * cosLat);
+    args.add(MAX_FILTER_CANDIDATES);
+    List<GeoIndexService.Hit> out = new ArrayList<>();
+    jdbcTemplate.query(
+        sql.toString(),
+        rs -> {
+          double d = GeoIndexService.distanceKm(lat, lng, rs.getDouble("lat"), rs.getDouble("lng"));
+          if (d <= radiusKm) out.add(new GeoIndexService.Hit(rs.getLong("id"), d));
+        },
+        args.toArray());
+    return out;
+  }
+
+  // Favorites newest-favorited first, keyset-paged on (fav.created_at, fav.post_id) so the walk stays
+  // on idx_favorite_user. cursor is either a token from a previous page or, for older clients, the
+  // post id of the last item seen.
+  public PostPage listFavorites(String userOneId, String cursor, int limit) {
     String viewer = userOneId == null ? "" : userOneId.trim();
-    if (viewer.isBlank()) return Collections.emptyList();
+    if (viewer.isBlank()) return new PostPage(Collections.emptyList(), null);
 
     int n = Math.max(1, Math.min(limit, 100));
-    long cur = cursor == null ? 0L : cursor;
-    List<Object> args = new ArrayList<>();
+    int batch = Math.max(n, 20);
+    FavoriteCursor last = decodeFavoriteCursor(viewer, cursor);
+
+    // Toggles still in the write-behind buffer: buffered unfavorites hide stored rows, and buffered
+    // favorites are not stored yet. They lead the first page, since once flushed they are the newest
+    // rows and so sit above any cursor handed out here.
+    Map<Long, Boolean> buffered = socialWriteBuffer.viewerStates(SocialWriteBuffer.Kind.FAVORITE, viewer);
+    List<PostDTO> list = new ArrayList<>();
+    Set<Long> shown = new HashSet<>();
+    if (last == null && buffered.containsValue(true)) {
+      List<Long> added =
+          buffered.entrySet().stream()
+              .filter(Map.Entry::getValue)
+              .map(Map.Entry::getKey)
+              .sorted(Comparator.reverseOrder())
+              .toList();
+      for (PostDTO dto : listByRankedIds(added, List.of(), false, null, n, false)) {
+        list.add(dto);
+        shown.add(dto.getPostId());
+      }
+      if (list.size() >= n) {
+        // Continue below every row stored so far; rows stored later are the ones shown above.
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+        last = new FavoriteCursor(now, Long.MAX_VALUE);
+      }
+    }
+
+    // Favorites of hidden posts are skipped, so keep walking the index until the page is full.
+    boolean more = true;
+    while (list.size() < n && more) {
+      List<FavoriteCursor> favs = listFavoriteKeys(viewer, last, batch);
+      more = favs.size() >= batch;
+      Map<Long, PostDTO> visible = new HashMap<>();
+      List<Long> ids = favs.stream().map(f -> f.postId).toList();
+      for (PostDTO dto : listByRankedIds(ids, List.of(), false, null, ids.size(), false)) {
+        visible.put(dto.getPostId(), dto);
+      }
+      for (FavoriteCursor f : favs) {
+        last = f;
+        PostDTO dto = visible.get(f.postId);
+        if (dto == null || Boolean.FALSE.equals(buffered.get(f.postId)) || shown.contains(f.postId)) continue;
+        list.add(dto);
+        if (list.size() >= n) {
+          more = true;
+          break;
+        }
+      }
+    }
 
+    postHydrator.hydrate(list);
+    socialWriteBuffer.overlayCounts(list);
+    viewerStateRepository.applyLiked(list, viewer);
+    for (PostDTO dto : list) {
+      dto.setFavoritedByMe(true);
+    }
+    return new PostPage(list, more && last != null ? last.encode() : null);
+  }
+
+  private List<FavoriteCursor> listFavoriteKeys(String viewer, FavoriteCursor after, int limit) {
     StringBuilder sql =
         new StringBuilder(
-            "SELECT p.id, p.title, p.body_md, p.location_name, p.lng, p.lat, p.occurred_at, "
-                + "p.author_user_one_id, p.is_public, p.is_indexable, p.created_at, p.updated_at, "
-                + "p.source_platform, p.source_id, p.source_url, "
-                + "(SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id) AS comment_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id) AS like_count, "
-                + "(SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id) AS favorite_count, "
-                + "EXISTS(SELECT 1 FROM chek_content_post_like l2 WHERE l2.post_id = p.id AND l2.user_one_id = ?) AS liked_by_me, "
-                + "TRUE AS favorited_by_me "
-                + "FROM chek_content_post_favorite fav "
-                + "JOIN chek_content_post p ON p.id = fav.post_id "
-                + "WHERE fav.user_one_id = ? AND p.is_public = TRUE AND p.is_indexable = TRUE ");
-
-    args.add(viewer);
+            "SELECT fav.post_id, fav.created_at FROM chek_content_post_favorite fav WHERE fav.user_one_id = ? ");
+    List<Object> args = new ArrayList<>();
     args.add(viewer);
+    if (after != null) {
+      sql.append("AND (fav.created_at < ? OR (fav.created_at = ? AND fav.post_id < ?)) ");
+      args.add(after.favoritedAt);
+      args.add(after.favoritedAt);
+      args.add(after.postId);
+    }
+    sql.append("ORDER BY fav.created_at DESC, fav.post_id DESC LIMIT ?");
+    args.add(limit);
+    return jdbcTemplate.query(
+        sql.toString(),
+        (rs, rowNum) -> new FavoriteCursor(rs.getTimestamp("created_at"), rs.getLong("post_id")),
+        args.toArray());
+  }
 
-    if (cur > 0) {
-      sql.append("AND p.id < ? ");
-      args.add(cur);
+  // A page of posts plus the opaque token for the next one (null on the last page).
+  // truncated: a relevance search ended at CHEK_SEARCH_MAX_CANDIDATES with matches left over.
+  public static class PostPage {
+    public final List<PostDTO> items;
+    public final String nextCursor;
+    public final boolean truncated;
+
+    PostPage(List<PostDTO> items, String nextCursor) {
+      this(items, nextCursor, false);
     }
 
-    sql.append("ORDER BY p.id DESC LIMIT ? ");
-    args.add(n);
+    PostPage(List<PostDTO> items, String nextCursor, boolean truncated) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+      this.truncated = truncated;
+    }
+  }
 
-    List<PostDTO> list =
-        jdbcTemplate.query(
-            sql.toString(),
-            (rs, rowNum) -> {
-              PostDTO dto = new PostDTO();
-              dto.setPostId(rs.getLong("id"));
-              dto.setTitle(rs.getString("title"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setLocationName(rs.getString("location_name"));
-              dto.setLng(toNullableDouble(rs.getBigDecimal("lng")));
-              dto.setLat(toNullableDouble(rs.getBigDecimal("lat")));
-              Timestamp occurredAt = rs.getTimestamp("occurred_at");
-              dto.setOccurredAt(occurredAt == null ? null : occurredAt.toInstant());
-              dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
-              dto.setSourcePlatform(rs.getString("source_platform"));
-              dto.setSourceId(rs.getString("source_id"));
-              dto.setSourceUrl(rs.getString("source_url"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              dto.setCommentCount(rs.getLong("comment_count"));
-              dto.setLikeCount(rs.getLong("like_count"));
-              dto.setFavoriteCount(rs.getLong("favorite_count"));
-              dto.setLikedByMe(rs.getBoolean("liked_by_me"));
-              dto.setFavoritedByMe(rs.getBoolean("favorited_by_me"));
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            args.toArray());
+  private FavoriteCursor decodeFavoriteCursor(String viewer, String cursor) {
+    if (cursor == null || cursor.isBlank()) return null;
+    String c = cursor.trim();
+    if (c.chars().allMatch(Character::isDigit)) {
+      long postId = Long.parseLong(c);
+      if (postId <= 0) return null;
+      List<Timestamp> at =
+          jdbcTemplate.query(
+              "SELECT created_at FROM chek_content_post_favorite WHERE user_one_id = ? AND post_id = ?",
+              (rs, rowNum) -> rs.getTimestamp("created_at"),
+              viewer,
+              postId);
+      // Unfavorited since the last page: fall back to the start rather than guessing a position.
+      return at.isEmpty() ? null : new FavoriteCursor(at.get(0), postId);
+    }
+    return FavoriteCursor.decode(c);
+  }
 
-    for (PostDTO dto : list) {
-      dto.setTags(listTagNamesByPostId(dto.getPostId()));
-      dto.setMedia(listMediaByPostId(dto.getPostId()));
+  // Opaque page token: base64url("f1:<epochSecond>:<nanos>:<postId>").
+  private static class FavoriteCursor {
+    final Timestamp favoritedAt;
+    final long postId;
+
+    FavoriteCursor(Timestamp favoritedAt, long postId) {
+      this.favoritedAt = favoritedAt;
+      this.postId = postId;
+    }
+
+    String encode() {
+      Instant at = favoritedAt.toInstant();
+      String raw = "f1:" + at.getEpochSecond() + ":" + at.getNano() + ":" + postId;
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static FavoriteCursor decode(String token) {
+      try {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = raw.split(":");
+        if (parts.length != 4 || !parts[0].equals("f1")) throw new IllegalArgumentException("invalid cursor");
+        Instant at = Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        return new FavoriteCursor(Timestamp.from(at), Long.parseLong(parts[3]));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("invalid cursor");
+      }
     }
-    return list;
   }
 
   private void upsertPostTags(long postId, List<String> tags) {
     List<String> tagNames = normalizeTags(tags);
     if (tagNames.isEmpty()) return;
 
-    for (String name : tagNames) {
-      Long tagId = findOrCreateTagId(name);
-      if (tagId == null) continue;
-      jdbcTemplate.update(
-          "INSERT INTO chek_content_post_tag(post_id, tag_id) VALUES(?, ?)", postId, tagId);
-    }
+    // Names differing only in case can resolve to the same tag.
+    List<Object[]> rows =
+        tagDictionary.resolve(tagNames).values().stream()
+            .distinct()
+            .map(tagId -> new Object[] {postId, tagId})
+            .toList();
+    jdbcTemplate.batchUpdate("INSERT IGNORE INTO chek_content_post_tag(post_id, tag_id) VALUES(?, ?)", rows);
   }
 
   private void upsertPostMedia(long postId, List<CreatePostMediaItem> media) {
@@ -567,48 +1097,53 @@ public class PostRepository {
     }
   }
 
-  private List<String> listTagNamesByPostId(long postId) {
-    return jdbcTemplate.query(
-        "SELECT t.name FROM chek_content_tag t "
-            + "JOIN chek_content_post_tag pt ON t.id = pt.tag_id "
-            + "WHERE pt.post_id = ? ORDER BY t.id ASC",
-        (rs, rowNum) -> rs.getString("name"),
-        postId);
+  static String postSelect(boolean withBody) {
+    return "SELECT p.id, p.title, "
+        + (withBody ? "p.body_md, " : "")
+        + "p.excerpt, p.text_length, p.first_image_url, "
+        + "p.location_name, p.lng, p.lat, p.occurred_at, "
+        + "p.author_user_one_id, p.is_public, p.is_indexable, p.created_at, p.updated_at, "
+        + "p.source_platform, p.source_id, p.source_url, "
+        + "COALESCE(s.comment_count, 0) AS comment_count, "
+        + "COALESCE(s.like_count, 0) AS like_count, "
+        + "COALESCE(s.favorite_count, 0) AS favorite_count "
+        + "FROM chek_content_post p LEFT JOIN chek_content_post_stats s ON s.post_id = p.id ";
   }
 
-  private List<PostMediaDTO> listMediaByPostId(long postId) {
-    return jdbcTemplate.query(
-        "SELECT media_object_id, kind FROM chek_content_post_media "
-            + "WHERE post_id = ? ORDER BY media_object_id ASC",
-        (rs, rowNum) -> {
-          PostMediaDTO dto = new PostMediaDTO();
-          dto.setMediaObjectId(rs.getLong("media_object_id"));
-          dto.setKind(rs.getString("kind"));
-          return dto;
-        },
-        postId);
+  static PostDTO mapPost(ResultSet rs) throws SQLException {
+    return mapPost(rs, true);
   }
 
-  private Long findOrCreateTagId(String name) {
-    List<Long> existing =
-        jdbcTemplate.query(
-            "SELECT id FROM chek_content_tag WHERE name = ?",
-            (rs, rowNum) -> rs.getLong("id"),
-            name);
-    if (!existing.isEmpty()) return existing.get(0);
-
-    try {
-      jdbcTemplate.update("INSERT INTO chek_content_tag(name) VALUES(?)", name);
-    } catch (DataIntegrityViolationException ignored) {
-      // ignore duplicate
-    }
-
-    List<Long> again =
-        jdbcTemplate.query(
-            "SELECT id FROM chek_content_tag WHERE name = ?",
-            (rs, rowNum) -> rs.getLong("id"),
-            name);
-    return again.isEmpty() ? null : again.get(0);
+  static PostDTO mapPost(ResultSet rs, boolean withBody) throws SQLException {
+    PostDTO dto = new PostDTO();
+    dto.setPostId(rs.getLong("id"));
+    dto.setTitle(rs.getString("title"));
+    dto.setBody(withBody ? rs.getString("body_md") : null);
+    dto.setExcerpt(rs.getString("excerpt"));
+    int textLength = rs.getInt("text_length");
+    dto.setTextLength(rs.wasNull() ? null : textLength);
+    dto.setFirstImageUrl(rs.getString("first_image_url"));
+    dto.setLocationName(rs.getString("location_name"));
+    dto.setLng(toNullableDouble(rs.getBigDecimal("lng")));
+    dto.setLat(toNullableDouble(rs.getBigDecimal("lat")));
+    Timestamp occurredAt = rs.getTimestamp("occurred_at");
+    dto.setOccurredAt(occurredAt == null ? null : occurredAt.toInstant());
+    dto.setAuthorUserOneId(rs.getString("author_user_one_id"));
+    dto.setSourcePlatform(rs.getString("source_platform"));
+    dto.setSourceId(rs.getString("source_id"));
+    dto.setSourceUrl(rs.getString("source_url"));
+    dto.setPublic(rs.getBoolean("is_public"));
+    dto.setIndexable(rs.getBoolean("is_indexable"));
+    dto.setCommentCount(rs.getLong("comment_count"));
+    dto.setLikeCount(rs.getLong("like_count"));
+    dto.setFavoriteCount(rs.getLong("favorite_count"));
+    dto.setLikedByMe(false);
+    dto.setFavoritedByMe(false);
+    Timestamp createdAt = rs.getTimestamp("created_at");
+    dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+    Timestamp updatedAt = rs.getTimestamp("updated_at");
+    dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+    return dto;
   }
 
   private static List<String> normalizeTags(List<String> tags) {
@@ -0,0 +1,156 @@
+package com.chek.content.repo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class PostStatsRepository {
+  private final JdbcTemplate jdbcTemplate;
+  private final LatestFeedBuffer latestFeedBuffer;
+  private final ChangeLogRepository changeLogRepository;
+
+  public PostStatsRepository(
+      JdbcTemplate jdbcTemplate, LatestFeedBuffer latestFeedBuffer, ChangeLogRepository changeLogRepository) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.latestFeedBuffer = latestFeedBuffer;
+    this.changeLogRepository = changeLogRepository;
+  }
+
+  public void ensureRow(long postId) {
+    jdbcTemplate.update(
+        "INSERT IGNORE INTO chek_content_post_stats(post_id, updated_at) VALUES(?, NOW())", postId);
+  }
+
+  public void addCommentCount(long postId, long delta) {
+    add(postId, "comment_count", delta);
+    latestFeedBuffer.addCounts(postId, delta, 0, 0);
+    changeLogRepository.recordCoalesced(ChangeLogRepository.POST, postId, ChangeLogRepository.COMMENT);
+  }
+
+  public void addLikeCount(long postId, long delta) {
+    add(postId, "like_count", delta);
+    latestFeedBuffer.addCounts(postId, 0, delta, 0);
+    changeLogRepository.recordCoalesced(ChangeLogRepository.POST, postId, ChangeLogRepository.STATS);
+  }
+
+  public void addFavoriteCount(long postId, long delta) {
+    add(postId, "favorite_count", delta);
+    latestFeedBuffer.addCounts(postId, 0, 0, delta);
+    changeLogRepository.recordCoalesced(ChangeLogRepository.POST, postId, ChangeLogRepository.STATS);
+  }
+
+  // Like deltas of many posts in one batch.
+  public void addLikeCounts(Map<Long, Long> deltas) {
+    addAll("like_count", deltas);
+    for (Map.Entry<Long, Long> e : deltas.entrySet()) {
+      if (e.getValue() == 0) continue;
+      latestFeedBuffer.addCounts(e.getKey(), 0, e.getValue(), 0);
+      changeLogRepository.recordCoalesced(ChangeLogRepository.POST, e.getKey(), ChangeLogRepository.STATS);
+    }
+  }
+
+  // Favorite deltas of many posts in one batch.
+  public void addFavoriteCounts(Map<Long, Long> deltas) {
+    addAll("favorite_count", deltas);
+    for (Map.Entry<Long, Long> e : deltas.entrySet()) {
+      if (e.getValue() == 0) continue;
+      latestFeedBuffer.addCounts(e.getKey(), 0, 0, e.getValue());
+      changeLogRepository.recordCoalesced(ChangeLogRepository.POST, e.getKey(), ChangeLogRepository.STATS);
+    }
+  }
+
+  private void add(long postId, String column, long delta) {
+    if (delta == 0) return;
+    jdbcTemplate.update(addSql(column), postId, Math.max(0L, delta), delta);
+  }
+
+  private void addAll(String column, Map<Long, Long> deltas) {
+    List<Object[]> rows = new ArrayList<>();
+    for (Map.Entry<Long, Long> e : deltas.entrySet()) {
+      if (e.getValue() != 0) rows.add(new Object[] {e.getKey(), Math.max(0L, e.getValue()), e.getValue()});
+    }
+    if (!rows.isEmpty()) jdbcTemplate.batchUpdate(addSql(column), rows);
+  }
+
+  // column is one of the constants above, never user input.
+  private static String addSql(String column) {
+    return "INSERT INTO chek_content_post_stats(post_id, "
+        + column
+        + ", updated_at) VALUES(?, ?, NOW()) "
+        + "ON DUPLICATE KEY UPDATE "
+        + column
+        + " = GREATEST("
+        + column
+        + " + ?, 0), updated_at = NOW()";
+  }
+
+  // Scans up to batchSize posts after afterId and rewrites the counters that drifted.
+  // lastPostId is -1 once the scan has passed the last post.
+  public ReconcileResult reconcileBatch(long afterId, int batchSize) {
+    int n = Math.max(1, Math.min(batchSize, 5000));
+    List<long[]> rows =
+        jdbcTemplate.query(
+            "SELECT p.id, s.post_id AS stats_post_id, "
+                + "COALESCE(s.comment_count, 0) AS comment_count, "
+                + "COALESCE(s.like_count, 0) AS like_count, "
+                + "COALESCE(s.favorite_count, 0) AS favorite_count, "
+                + "(SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id) AS real_comment_count, "
+                + "(SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id) AS real_like_count, "
+                + "(SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id) AS real_favorite_count "
+                + "FROM chek_content_post p LEFT JOIN chek_content_post_stats s ON s.post_id = p.id "
+                + "WHERE p.id > ? ORDER BY p.id ASC LIMIT ?",
+            (rs, rowNum) -> {
+              rs.getLong("stats_post_id");
+              boolean missing = rs.wasNull();
+              boolean drifted =
+                  missing
+                      || rs.getLong("comment_count") != rs.getLong("real_comment_count")
+                      || rs.getLong("like_count") != rs.getLong("real_like_count")
+                      || rs.getLong("favorite_count") != rs.getLong("real_favorite_count");
+              return new long[] {rs.getLong("id"), drifted ? 1 : 0};
+            },
+            afterId,
+            n);
+    if (rows.isEmpty()) return new ReconcileResult(-1L, 0);
+
+    List<Long> drifted = new ArrayList<>();
+    for (long[] r : rows) {
+      if (r[1] == 1) drifted.add(r[0]);
+    }
+    if (!drifted.isEmpty()) {
+      String in = String.join(",", Collections.nCopies(drifted.size(), "?"));
+      List<Object[]> missingArgs = new ArrayList<>();
+      for (Long id : drifted) missingArgs.add(new Object[] {id});
+      jdbcTemplate.batchUpdate(
+          "INSERT IGNORE INTO chek_content_post_stats(post_id, updated_at) VALUES(?, NOW())",
+          missingArgs);
+      // Recount inside the UPDATE itself so concurrent increments between the scan and the fix
+      // are not lost.
+      jdbcTemplate.update(
+          "UPDATE chek_content_post_stats s SET "
+              + "comment_count = (SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = s.post_id), "
+              + "like_count = (SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = s.post_id), "
+              + "favorite_count = (SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = s.post_id), "
+              + "updated_at = NOW() "
+              + "WHERE s.post_id IN ("
+              + in
+              + ")",
+          drifted.toArray());
+    }
+    return new ReconcileResult(rows.get(rows.size() - 1)[0], drifted.size());
+  }
+
+  public static class ReconcileResult {
+    public final long lastPostId;
+    public final int fixed;
+
+    ReconcileResult(long lastPostId, int fixed) {
+      this.lastPostId = lastPostId;
+      this.fixed = fixed;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.chek.content.repo;
+
+import com.chek.content.search.WikiTitleLinker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Stores the wiki mentions WikiTitleLinker finds in post bodies (chek_content_post_wiki_link), so
+// reads only join the spans instead of scanning bodies. Posts keep the links found when they were
+// written; entries created later link from a post's next write.
+@Repository
+public class PostWikiLinkRepository {
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final WikiTitleLinker wikiTitleLinker;
+
+  public PostWikiLinkRepository(JdbcTemplate jdbcTemplate, WikiTitleLinker wikiTitleLinker) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.wikiTitleLinker = wikiTitleLinker;
+  }
+
+  // Rescans each body and replaces the post's stored links.
+  public void replace(Map<Long, String> bodiesByPost) {
+    if (bodiesByPost.isEmpty()) return;
+    List<Long> ids = new ArrayList<>(bodiesByPost.keySet());
+    for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+      List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+      jdbcTemplate.update(
+          "DELETE FROM chek_content_post_wiki_link WHERE post_id IN ("
+              + String.join(",", Collections.nCopies(chunk.size(), "?"))
+              + ")",
+          chunk.toArray());
+    }
+
+    List<Object[]> rows = new ArrayList<>();
+    for (Map.Entry<Long, String> e : bodiesByPost.entrySet()) {
+      for (WikiTitleLinker.Link l : wikiTitleLinker.scan(e.getValue())) {
+        rows.add(new Object[] {e.getKey(), l.start, l.length, l.entryId});
+      }
+    }
+    if (!rows.isEmpty()) {
+      jdbcTemplate.batchUpdate(
+          "INSERT INTO chek_content_post_wiki_link(post_id, start_offset, span_length, entry_id) VALUES(?, ?, ?, ?)",
+          rows);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.chek.content.repo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+// Page tokens for relevance-ranked search results. BM25 order has nothing to do with id order, so
+// a search page is continued by its rank offset, base64url("s1:<offset>"), not by the last id.
+// A plain numeric cursor is still accepted on search for older clients; it keeps the pre-index
+// semantics (matches below that id, newest first).
+final class SearchCursor {
+  private SearchCursor() {}
+
+  static boolean isIdCursor(String cursor) {
+    return cursor == null || cursor.isBlank() || cursor.trim().chars().allMatch(Character::isDigit);
+  }
+
+  static long beforeId(String cursor) {
+    if (cursor == null || cursor.isBlank()) return 0L;
+    try {
+      return Long.parseLong(cursor.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid cursor");
+    }
+  }
+
+  static int offset(String cursor) {
+    if (cursor == null || cursor.isBlank()) return 0;
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+      String[] parts = raw.split(":");
+      if (parts.length != 2 || !parts[0].equals("s1")) throw new IllegalArgumentException("invalid cursor");
+      int offset = Integer.parseInt(parts[1]);
+      if (offset < 0) throw new IllegalArgumentException("invalid cursor");
+      return offset;
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor");
+    }
+  }
+
+  static String encode(int offset) {
+    String raw = "s1:" + offset;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // Ranked ids from offset on.
+  static List<Long> from(List<Long> ranked, int offset) {
+    return offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+  }
+
+  // Token for the page after one that ended with lastId, taken from ranked starting at offset;
+  // null when the page was short or nothing is left.
+  static String next(List<Long> ranked, int offset, int pageSize, int n, long lastId) {
+    if (pageSize < n) return null;
+    int at = from(ranked, offset).indexOf(lastId);
+    if (at < 0) return null;
+    int next = offset + at + 1;
+    return next < ranked.size() ? encode(next) : null;
+  }
+}
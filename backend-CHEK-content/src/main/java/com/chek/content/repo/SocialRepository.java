@@ -1,59 +1,253 @@
 package com.chek.content.repo;
 
+import com.chek.content.model.social.PostSocialStateDTO;
+import com.chek.content.repo.SocialWriteBuffer.Kind;
+import com.chek.content.repo.SocialWriteBuffer.PostToggles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public class SocialRepository {
+  private static final int FLUSH_CHUNK = 500;
+
   private final JdbcTemplate jdbcTemplate;
+  private final PostStatsRepository postStatsRepository;
+  private final ViewerStateRepository viewerStateRepository;
+  private final PostCacheRepository postCacheRepository;
+  private final SocialWriteBuffer socialWriteBuffer;
 
-  public SocialRepository(JdbcTemplate jdbcTemplate) {
+  public SocialRepository(
+      JdbcTemplate jdbcTemplate,
+      PostStatsRepository postStatsRepository,
+      ViewerStateRepository viewerStateRepository,
+      PostCacheRepository postCacheRepository,
+      SocialWriteBuffer socialWriteBuffer) {
     this.jdbcTemplate = jdbcTemplate;
+    this.postStatsRepository = postStatsRepository;
+    this.viewerStateRepository = viewerStateRepository;
+    this.postCacheRepository = postCacheRepository;
+    this.socialWriteBuffer = socialWriteBuffer;
   }
 
+  @Transactional
   public boolean likePost(long postId, String userOneId) {
+    Boolean buffered = buffer(Kind.LIKE, postId, userOneId, true);
+    if (buffered != null) return buffered;
+    int updated;
     try {
-      int updated =
+      updated =
           jdbcTemplate.update(
               "INSERT INTO chek_content_post_like(post_id, user_one_id) VALUES(?, ?)",
               postId,
               userOneId);
-      return updated > 0;
     } catch (DataIntegrityViolationException ignored) {
       return false;
     }
+    if (updated <= 0) return false;
+    postStatsRepository.addLikeCount(postId, 1);
+    viewerStateRepository.onLikeChanged(userOneId, postId, true);
+    postCacheRepository.evict(postId);
+    return true;
   }
 
+  @Transactional
   public boolean unlikePost(long postId, String userOneId) {
+    Boolean buffered = buffer(Kind.LIKE, postId, userOneId, false);
+    if (buffered != null) return buffered;
     int updated =
         jdbcTemplate.update(
             "DELETE FROM chek_content_post_like WHERE post_id = ? AND user_one_id = ?",
             postId,
             userOneId);
-    return updated > 0;
+    if (updated <= 0) return false;
+    postStatsRepository.addLikeCount(postId, -1);
+    viewerStateRepository.onLikeChanged(userOneId, postId, false);
+    postCacheRepository.evict(postId);
+    return true;
   }
 
+  @Transactional
   public boolean favoritePost(long postId, String userOneId) {
+    Boolean buffered = buffer(Kind.FAVORITE, postId, userOneId, true);
+    if (buffered != null) return buffered;
+    int updated;
     try {
-      int updated =
+      updated =
           jdbcTemplate.update(
               "INSERT INTO chek_content_post_favorite(post_id, user_one_id) VALUES(?, ?)",
               postId,
               userOneId);
-      return updated > 0;
     } catch (DataIntegrityViolationException ignored) {
       return false;
     }
+    if (updated <= 0) return false;
+    postStatsRepository.addFavoriteCount(postId, 1);
+    viewerStateRepository.onFavoriteChanged(userOneId, postId, true);
+    postCacheRepository.evict(postId);
+    return true;
   }
 
+  @Transactional
   public boolean unfavoritePost(long postId, String userOneId) {
+    Boolean buffered = buffer(Kind.FAVORITE, postId, userOneId, false);
+    if (buffered != null) return buffered;
     int updated =
         jdbcTemplate.update(
             "DELETE FROM chek_content_post_favorite WHERE post_id = ? AND user_one_id = ?",
             postId,
             userOneId);
-    return updated > 0;
+    if (updated <= 0) return false;
+    postStatsRepository.addFavoriteCount(postId, -1);
+    viewerStateRepository.onFavoriteChanged(userOneId, postId, false);
+    postCacheRepository.evict(postId);
+    return true;
+  }
+
+  // Primary-key lookup only; used as the visibility gate for like/favorite writes.
+  public boolean isPostVisible(long postId) {
+    return !jdbcTemplate
+        .query(
+            "SELECT 1 FROM chek_content_post WHERE id = ? AND is_public = TRUE AND is_indexable = TRUE",
+            (rs, rowNum) -> rs.getInt(1),
+            postId)
+        .isEmpty();
+  }
+
+  // The viewer's flags and the counters from chek_content_post_stats, in one statement of
+  // primary-key lookups.
+  public PostSocialStateDTO postState(long postId, String userOneId) {
+    return jdbcTemplate
+        .query(
+            "SELECT COALESCE(s.like_count, 0) AS like_count, COALESCE(s.favorite_count, 0) AS favorite_count, "
+                + "EXISTS(SELECT 1 FROM chek_content_post_like l WHERE l.post_id = p.id AND l.user_one_id = ?) AS liked, "
+                + "EXISTS(SELECT 1 FROM chek_content_post_favorite f WHERE f.post_id = p.id AND f.user_one_id = ?) AS favorited "
+                + "FROM chek_content_post p LEFT JOIN chek_content_post_stats s ON s.post_id = p.id WHERE p.id = ?",
+            (rs, rowNum) -> {
+              PostSocialStateDTO dto = new PostSocialStateDTO();
+              dto.setPostId(postId);
+              dto.setLikeCount(rs.getLong("like_count"));
+              dto.setFavoriteCount(rs.getLong("favorite_count"));
+              dto.setLiked(rs.getBoolean("liked"));
+              dto.setFavorited(rs.getBoolean("favorited"));
+              return dto;
+            },
+            userOneId,
+            userOneId,
+            postId)
+        .stream()
+        .findFirst()
+        .map(
+            dto -> {
+              Boolean liked = socialWriteBuffer.state(Kind.LIKE, postId, userOneId);
+              Boolean favorited = socialWriteBuffer.state(Kind.FAVORITE, postId, userOneId);
+              if (liked != null) dto.setLiked(liked);
+              if (favorited != null) dto.setFavorited(favorited);
+              dto.setLikeCount(Math.max(0L, dto.getLikeCount() + socialWriteBuffer.delta(Kind.LIKE, postId)));
+              dto.setFavoriteCount(
+                  Math.max(0L, dto.getFavoriteCount() + socialWriteBuffer.delta(Kind.FAVORITE, postId)));
+              return dto;
+            })
+        .orElse(null);
+  }
+
+  // Writes one stripe of buffered toggles in a fixed number of round trips whatever the number of
+  // posts: per kind, one lookup of which (post, user) rows exist, one batch of INSERTs for the
+  // missing ones and one batch of DELETEs for the present ones, then the counters in one batch per
+  // column. Counters follow what the lookup found rather than driver update counts, which batched
+  // statements may report as SUCCESS_NO_INFO.
+  @Transactional
+  public void flushToggles(Map<Long, PostToggles> toggles) {
+    Map<Long, Long> likes = writeToggles("chek_content_post_like", Kind.LIKE, toggles);
+    Map<Long, Long> favorites = writeToggles("chek_content_post_favorite", Kind.FAVORITE, toggles);
+    postStatsRepository.addLikeCounts(likes);
+    postStatsRepository.addFavoriteCounts(favorites);
+    for (Map.Entry<Long, PostToggles> e : toggles.entrySet()) {
+      long postId = e.getKey();
+      PostToggles t = e.getValue();
+      for (Map.Entry<String, Boolean> like : t.likes.entrySet()) {
+        viewerStateRepository.onLikeChanged(like.getKey(), postId, like.getValue());
+      }
+      for (Map.Entry<String, Boolean> favorite : t.favorites.entrySet()) {
+        viewerStateRepository.onFavoriteChanged(favorite.getKey(), postId, favorite.getValue());
+      }
+      postCacheRepository.evict(postId);
+    }
+  }
+
+  // Returns the net row change per post.
+  private Map<Long, Long> writeToggles(String table, Kind kind, Map<Long, PostToggles> toggles) {
+    List<Object[]> keys = new ArrayList<>();
+    for (Map.Entry<Long, PostToggles> e : toggles.entrySet()) {
+      for (String user : e.getValue().of(kind).keySet()) keys.add(new Object[] {e.getKey(), user});
+    }
+    Map<Long, Long> deltas = new HashMap<>();
+    if (keys.isEmpty()) return deltas;
+
+    // table is one of the two names flushToggles passes, never user input.
+    Set<String> present = new HashSet<>();
+    for (int i = 0; i < keys.size(); i += FLUSH_CHUNK) {
+      List<Object[]> chunk = keys.subList(i, Math.min(keys.size(), i + FLUSH_CHUNK));
+      List<Object> args = new ArrayList<>(chunk.size() * 2);
+      for (Object[] k : chunk) {
+        args.add(k[0]);
+        args.add(k[1]);
+      }
+      jdbcTemplate.query(
+          "SELECT post_id, user_one_id FROM "
+              + table
+              + " WHERE (post_id, user_one_id) IN ("
+              + String.join(",", Collections.nCopies(chunk.size(), "(?, ?)"))
+              + ")",
+          rs -> {
+            present.add(rs.getLong("post_id") + "\u0000" + rs.getString("user_one_id"));
+          },
+          args.toArray());
+    }
+
+    List<Object[]> inserts = new ArrayList<>();
+    List<Object[]> deletes = new ArrayList<>();
+    for (Object[] k : keys) {
+      long postId = (Long) k[0];
+      boolean on = toggles.get(postId).of(kind).get((String) k[1]);
+      if (on == present.contains(postId + "\u0000" + k[1])) continue;
+      (on ? inserts : deletes).add(k);
+      deltas.merge(postId, on ? 1L : -1L, Long::sum);
+    }
+    if (!inserts.isEmpty()) {
+      jdbcTemplate.batchUpdate("INSERT IGNORE INTO " + table + "(post_id, user_one_id) VALUES(?, ?)", inserts);
+    }
+    if (!deletes.isEmpty()) {
+      jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE post_id = ? AND user_one_id = ?", deletes);
+    }
+    return deltas;
+  }
+
+  // Hands the toggle to the write-behind buffer when it is on; null means write through.
+  private Boolean buffer(Kind kind, long postId, String userOneId, boolean on) {
+    if (!socialWriteBuffer.isEnabled()) return null;
+    String table = kind == Kind.LIKE ? "chek_content_post_like" : "chek_content_post_favorite";
+    return socialWriteBuffer.put(
+        kind,
+        postId,
+        userOneId,
+        on,
+        () ->
+            !jdbcTemplate
+                .query(
+                    "SELECT 1 FROM " + table + " WHERE post_id = ? AND user_one_id = ?",
+                    (rs, rowNum) -> rs.getInt(1),
+                    postId,
+                    userOneId)
+                .isEmpty());
   }
 
   public boolean followUser(String followerUserOneId, String followeeUserOneId) {
@@ -0,0 +1,248 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+// Write-behind buffer for like/favorite toggles (CHEK_SOCIAL_WRITE_BEHIND_ENABLED). Toggles are
+// coalesced per (kind, post, user) into the desired final state, so like/unlike/like in one flush
+// window costs one row write and a repeated tap costs nothing. Stripes are chosen by post id; each
+// holds the entries still accepting toggles and the ones a flush has taken but not yet committed.
+// Both are overlaid on reads (viewer flags and counters) until the flush commits.
+//
+// SocialWriteBehindFlusher drains it; once closed (shutdown) or above
+// CHEK_SOCIAL_WRITE_BEHIND_MAX_PENDING entries, toggles of keys not already buffered go straight to
+// MySQL again.
+@Repository
+public class SocialWriteBuffer {
+  public enum Kind {
+    LIKE,
+    FAVORITE
+  }
+
+  private final boolean enabled;
+  private final int maxPending;
+  private final Stripe[] stripes;
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile boolean open = true;
+
+  public SocialWriteBuffer(
+      @Value("${CHEK_SOCIAL_WRITE_BEHIND_ENABLED:false}") boolean enabled,
+      @Value("${CHEK_SOCIAL_WRITE_BEHIND_STRIPES:64}") int stripes,
+      @Value("${CHEK_SOCIAL_WRITE_BEHIND_MAX_PENDING:50000}") int maxPending) {
+    this.enabled = enabled;
+    this.maxPending = Math.max(1, maxPending);
+    this.stripes = new Stripe[Math.max(1, Math.min(stripes, 1024))];
+    for (int i = 0; i < this.stripes.length; i++) this.stripes[i] = new Stripe(size);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // Records the toggle and returns whether it changes the viewer's state, or null when the buffer
+  // does not take it (disabled, closed or full) and the caller must write through. A key that is
+  // already buffered always stays in the buffer, even when it is closed or full, so a write-through
+  // can never be overtaken by an older buffered toggle of the same key. current reads the persisted
+  // state; it is only called when nothing is buffered for the key, outside the lock.
+  public Boolean put(Kind kind, long postId, String userOneId, boolean on, BooleanSupplier current) {
+    if (!enabled) return null;
+    Stripe s = stripe(postId);
+    synchronized (s) {
+      Boolean buffered = s.state(kind, postId, userOneId);
+      if (buffered != null) return s.set(kind, postId, userOneId, on, buffered);
+      if (!open || size.get() >= maxPending) return null;
+    }
+    boolean persisted = current.getAsBoolean();
+    synchronized (s) {
+      Boolean buffered = s.state(kind, postId, userOneId);
+      if (buffered != null) return s.set(kind, postId, userOneId, on, buffered);
+      if (!open) return null;
+      return s.set(kind, postId, userOneId, on, persisted);
+    }
+  }
+
+  // Buffered state for the viewer, or null when nothing is buffered.
+  public Boolean state(Kind kind, long postId, String userOneId) {
+    if (!enabled) return null;
+    Stripe s = stripe(postId);
+    synchronized (s) {
+      return s.state(kind, postId, userOneId);
+    }
+  }
+
+  // Buffered states of one viewer by post id. Scans every stripe, so keep it off hot paths.
+  public Map<Long, Boolean> viewerStates(Kind kind, String userOneId) {
+    if (!enabled) return Map.of();
+    Map<Long, Boolean> out = new HashMap<>();
+    for (Stripe s : stripes) {
+      synchronized (s) {
+        s.viewerStates(kind, userOneId, out);
+      }
+    }
+    return out;
+  }
+
+  // Adds/removes buffered post ids of the viewer in ids, the set MySQL (or Redis) returned.
+  public void overlay(Kind kind, String userOneId, Collection<Long> postIds, Set<Long> ids) {
+    if (!enabled) return;
+    for (Long postId : postIds) {
+      Boolean on = state(kind, postId, userOneId);
+      if (on == null) continue;
+      if (on) {
+        ids.add(postId);
+      } else {
+        ids.remove(postId);
+      }
+    }
+  }
+
+  // Net buffered change of like_count / favorite_count.
+  public long delta(Kind kind, long postId) {
+    if (!enabled) return 0L;
+    Stripe s = stripe(postId);
+    synchronized (s) {
+      return s.delta(kind, postId);
+    }
+  }
+
+  public void overlayCounts(List<PostDTO> posts) {
+    if (!enabled || posts == null) return;
+    for (PostDTO dto : posts) {
+      long likes = delta(Kind.LIKE, dto.getPostId());
+      long favorites = delta(Kind.FAVORITE, dto.getPostId());
+      if (likes != 0) dto.setLikeCount(Math.max(0L, dto.getLikeCount() + likes));
+      if (favorites != 0) dto.setFavoriteCount(Math.max(0L, dto.getFavoriteCount() + favorites));
+    }
+  }
+
+  // Entries of one stripe to write, by post id. Entries from an earlier failed flush are handed out
+  // again before anything new.
+  public Map<Long, PostToggles> take(int stripe) {
+    Stripe s = stripes[stripe];
+    synchronized (s) {
+      if (s.flushing.isEmpty()) {
+        if (s.pending.isEmpty()) return Map.of();
+        s.flushing = s.pending;
+        s.pending = new HashMap<>();
+      }
+      return s.flushing;
+    }
+  }
+
+  // Called once the entries returned by take(stripe) are committed.
+  public void complete(int stripe) {
+    Stripe s = stripes[stripe];
+    synchronized (s) {
+      for (PostToggles t : s.flushing.values()) size.addAndGet(-t.size());
+      s.flushing = new HashMap<>();
+    }
+  }
+
+  public int stripeCount() {
+    return stripes.length;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  // Stops taking new keys; keys still buffered keep coalescing until they are taken and completed.
+  public void close() {
+    open = false;
+  }
+
+  private Stripe stripe(long postId) {
+    long h = postId * 0x9E3779B97F4A7C15L;
+    return stripes[(int) ((h >>> 32) % stripes.length)];
+  }
+
+  // Toggles of one post whose desired state differs from the state they started from.
+  public static class PostToggles {
+    public final Map<String, Boolean> likes = new HashMap<>();
+    public final Map<String, Boolean> favorites = new HashMap<>();
+    long likeDelta;
+    long favoriteDelta;
+
+    Map<String, Boolean> of(Kind kind) {
+      return kind == Kind.LIKE ? likes : favorites;
+    }
+
+    public List<String> users(Kind kind, boolean on) {
+      List<String> out = new ArrayList<>();
+      for (Map.Entry<String, Boolean> e : of(kind).entrySet()) {
+        if (e.getValue() == on) out.add(e.getKey());
+      }
+      return out;
+    }
+
+    int size() {
+      return likes.size() + favorites.size();
+    }
+  }
+
+  private static class Stripe {
+    Map<Long, PostToggles> pending = new HashMap<>();
+    Map<Long, PostToggles> flushing = new HashMap<>();
+    final AtomicInteger size;
+
+    Stripe(AtomicInteger size) {
+      this.size = size;
+    }
+
+    Boolean state(Kind kind, long postId, String userOneId) {
+      PostToggles p = pending.get(postId);
+      Boolean on = p == null ? null : p.of(kind).get(userOneId);
+      if (on != null) return on;
+      PostToggles f = flushing.get(postId);
+      return f == null ? null : f.of(kind).get(userOneId);
+    }
+
+    void viewerStates(Kind kind, String userOneId, Map<Long, Boolean> out) {
+      // pending is newer than flushing, so it goes last and wins.
+      for (Map<Long, PostToggles> m : List.of(flushing, pending)) {
+        for (Map.Entry<Long, PostToggles> e : m.entrySet()) {
+          Boolean on = e.getValue().of(kind).get(userOneId);
+          if (on != null) out.put(e.getKey(), on);
+        }
+      }
+    }
+
+    long delta(Kind kind, long postId) {
+      long d = 0L;
+      for (Map<Long, PostToggles> m : List.of(pending, flushing)) {
+        PostToggles t = m.get(postId);
+        if (t != null) d += kind == Kind.LIKE ? t.likeDelta : t.favoriteDelta;
+      }
+      return d;
+    }
+
+    boolean set(Kind kind, long postId, String userOneId, boolean on, boolean current) {
+      if (on == current) return false;
+      PostToggles t = pending.computeIfAbsent(postId, k -> new PostToggles());
+      long d = on ? 1L : -1L;
+      if (t.of(kind).remove(userOneId) != null) {
+        // The pending entry held the opposite of on, i.e. it started from on: back to a no-op.
+        size.decrementAndGet();
+      } else {
+        t.of(kind).put(userOneId, on);
+        size.incrementAndGet();
+      }
+      if (kind == Kind.LIKE) {
+        t.likeDelta += d;
+      } else {
+        t.favoriteDelta += d;
+      }
+      if (t.size() == 0) pending.remove(postId);
+      return true;
+    }
+  }
+}
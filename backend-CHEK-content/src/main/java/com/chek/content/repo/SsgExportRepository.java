@@ -0,0 +1,120 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import com.chek.content.model.wiki.WikiEntryDTO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+// Full public corpus scans for /v1/public/ssg/*:stream. One forward-only, read-only query per
+// export; rows are handed to the sink CHEK_SSG_STREAM_BATCH at a time after batch hydration, so
+// memory stays flat however large the corpus is. On MySQL the driver only streams with
+// fetchSize = Integer.MIN_VALUE (or useCursorFetch=true on DB_URL); elsewhere
+// CHEK_SSG_STREAM_FETCH_SIZE is used. Hydration runs on a second pooled connection.
+@Repository
+public class SsgExportRepository {
+  private final JdbcTemplate jdbcTemplate;
+  private final PostHydrator postHydrator;
+  private final WikiRepository wikiRepository;
+  private final int fetchSize;
+  private final int batchSize;
+
+  public SsgExportRepository(
+      JdbcTemplate jdbcTemplate,
+      PostHydrator postHydrator,
+      WikiRepository wikiRepository,
+      @Value("${CHEK_SSG_STREAM_FETCH_SIZE:500}") int fetchSize,
+      @Value("${CHEK_SSG_STREAM_BATCH:200}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.postHydrator = postHydrator;
+    this.wikiRepository = wikiRepository;
+    this.fetchSize = Math.max(1, fetchSize);
+    this.batchSize = Math.max(1, Math.min(batchSize, 1000));
+  }
+
+  public interface BatchSink<T> {
+    void accept(List<T> batch) throws IOException;
+  }
+
+  // Public+indexable posts with id > afterId (and updated after updatedAfter), ascending by id.
+  public long streamPosts(Instant updatedAfter, long afterId, BatchSink<PostDTO> sink) throws IOException {
+    StringBuilder sql =
+        new StringBuilder(PostRepository.POST_SELECT + "WHERE p.is_public = TRUE AND p.is_indexable = TRUE AND p.id > ? ");
+    List<Object> args = new ArrayList<>();
+    args.add(afterId);
+    if (updatedAfter != null) {
+      sql.append("AND p.updated_at > ? ");
+      args.add(Timestamp.from(updatedAfter));
+    }
+    sql.append("ORDER BY p.id ASC");
+    return stream(sql.toString(), args, (rs, rowNum) -> PostRepository.mapPost(rs), postHydrator::hydrate, sink);
+  }
+
+  public long streamWiki(Instant updatedAfter, long afterId, BatchSink<WikiEntryDTO> sink) throws IOException {
+    StringBuilder sql =
+        new StringBuilder(WikiRepository.ENTRY_SELECT + "WHERE is_public = TRUE AND is_indexable = TRUE AND id > ? ");
+    List<Object> args = new ArrayList<>();
+    args.add(afterId);
+    if (updatedAfter != null) {
+      sql.append("AND updated_at > ? ");
+      args.add(Timestamp.from(updatedAfter));
+    }
+    sql.append("ORDER BY id ASC");
+    return stream(
+        sql.toString(), args, (rs, rowNum) -> WikiRepository.mapEntry(rs), wikiRepository::hydrateTags, sink);
+  }
+
+  private <T> long stream(
+      String sql, List<Object> args, RowMapper<T> mapper, Consumer<List<T>> hydrate, BatchSink<T> sink)
+      throws IOException {
+    List<T> batch = new ArrayList<>(batchSize);
+    long[] count = {0L};
+    try {
+      jdbcTemplate.query(
+          conn -> {
+            PreparedStatement ps =
+                conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(streamingFetchSize(conn));
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            return ps;
+          },
+          rs -> {
+            batch.add(mapper.mapRow(rs, (int) count[0]));
+            count[0]++;
+            if (batch.size() >= batchSize) flush(batch, hydrate, sink);
+          });
+      flush(batch, hydrate, sink);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return count[0];
+  }
+
+  private static <T> void flush(List<T> batch, Consumer<List<T>> hydrate, BatchSink<T> sink) {
+    if (batch.isEmpty()) return;
+    hydrate.accept(batch);
+    try {
+      sink.accept(batch);
+    } catch (IOException e) {
+      // Usually the client went away; abort the scan.
+      throw new UncheckedIOException(e);
+    }
+    batch.clear();
+  }
+
+  private int streamingFetchSize(Connection conn) throws SQLException {
+    return "MySQL".equals(conn.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : fetchSize;
+  }
+}
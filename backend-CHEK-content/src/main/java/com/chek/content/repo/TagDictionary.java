@@ -0,0 +1,168 @@
+package com.chek.content.repo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Shared tag name -> id cache for every write path that links tags. Tags are never renamed or
+// deleted, so entries never go stale; misses are resolved in bulk with one multi-row INSERT IGNORE
+// and one SELECT. Holds at most CHEK_TAG_DICTIONARY_MAX_ENTRIES names; past that, misses are still
+// resolved but not cached. Ids created inside a transaction are cached only after it commits.
+@Repository
+public class TagDictionary {
+  private static final Logger log = LoggerFactory.getLogger(TagDictionary.class);
+  private static final int MAX_PARAMS_PER_QUERY = 500;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int maxEntries;
+  private final Map<String, Long> ids = new ConcurrentHashMap<>();
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter created;
+
+  public TagDictionary(
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${CHEK_TAG_DICTIONARY_MAX_ENTRIES:100000}") int maxEntries) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.maxEntries = Math.max(0, maxEntries);
+    this.hits = Counter.builder("chek.tag.dictionary.lookups").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("chek.tag.dictionary.lookups").tag("result", "miss").register(meterRegistry);
+    this.created = Counter.builder("chek.tag.dictionary.created").register(meterRegistry);
+    Gauge.builder("chek.tag.dictionary.size", ids, Map::size).register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warm() {
+    if (maxEntries == 0) return;
+    try {
+      long started = System.currentTimeMillis();
+      jdbcTemplate.query(
+          "SELECT id, name FROM chek_content_tag ORDER BY id DESC LIMIT ?",
+          rs -> {
+            ids.put(rs.getString("name"), rs.getLong("id"));
+          },
+          maxEntries);
+      log.info("tag dictionary: {} tags loaded in {} ms", ids.size(), System.currentTimeMillis() - started);
+    } catch (Exception e) {
+      log.warn("tag dictionary warm-up failed", e);
+    }
+  }
+
+  public Long resolve(String name) {
+    return resolve(List.of(name)).get(name);
+  }
+
+  // Returns an id for every (trimmed, non-blank) name, creating missing tags. Keys are the names as
+  // passed in.
+  public Map<String, Long> resolve(Collection<String> names) {
+    Map<String, Long> out = new LinkedHashMap<>();
+    Set<String> missing = new LinkedHashSet<>();
+    for (String name : names) {
+      if (name == null || name.isBlank() || out.containsKey(name)) continue;
+      Long id = ids.get(name);
+      if (id != null) {
+        out.put(name, id);
+      } else {
+        missing.add(name);
+      }
+    }
+    hits.increment(out.size());
+    if (missing.isEmpty()) return out;
+    misses.increment(missing.size());
+
+    Map<String, Long> found = select(missing);
+    List<String> toCreate = missing.stream().filter(n -> match(found, n) == null).toList();
+    if (!toCreate.isEmpty()) {
+      int inserted = 0;
+      for (int from = 0; from < toCreate.size(); from += MAX_PARAMS_PER_QUERY) {
+        List<String> chunk = toCreate.subList(from, Math.min(toCreate.size(), from + MAX_PARAMS_PER_QUERY));
+        inserted +=
+            jdbcTemplate.update(
+                "INSERT IGNORE INTO chek_content_tag(name) VALUES "
+                    + String.join(",", Collections.nCopies(chunk.size(), "(?)")),
+                chunk.toArray());
+      }
+      created.increment(inserted);
+      found.putAll(select(toCreate));
+    }
+
+    Map<String, Long> resolved = new HashMap<>();
+    for (String name : missing) {
+      Long id = match(found, name);
+      if (id == null) continue;
+      out.put(name, id);
+      resolved.put(name, id);
+    }
+    cacheAfterCommit(resolved);
+    return out;
+  }
+
+  private void cacheAfterCommit(Map<String, Long> resolved) {
+    if (resolved.isEmpty()) return;
+    Runnable r =
+        () -> {
+          for (Map.Entry<String, Long> e : resolved.entrySet()) {
+            if (ids.size() >= maxEntries) break;
+            ids.put(e.getKey(), e.getValue());
+          }
+        };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+
+  // Stored name -> id, plus the lowercased name, since MySQL matches tag names case-insensitively.
+  private Map<String, Long> select(Collection<String> names) {
+    Map<String, Long> out = new HashMap<>();
+    List<String> list = new ArrayList<>(names);
+    for (int from = 0; from < list.size(); from += MAX_PARAMS_PER_QUERY) {
+      List<String> chunk = list.subList(from, Math.min(list.size(), from + MAX_PARAMS_PER_QUERY));
+      jdbcTemplate.query(
+          "SELECT id, name FROM chek_content_tag WHERE name IN ("
+              + String.join(",", Collections.nCopies(chunk.size(), "?"))
+              + ")",
+          rs -> {
+            String name = rs.getString("name");
+            out.put(name, rs.getLong("id"));
+            out.putIfAbsent(name.toLowerCase(Locale.ROOT), rs.getLong("id"));
+          },
+          chunk.toArray());
+    }
+    return out;
+  }
+
+  private static Long match(Map<String, Long> found, String name) {
+    Long id = found.get(name);
+    return id != null ? id : found.get(name.toLowerCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,257 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.post.PostDTO;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Resolves liked_by_me / favorited_by_me once per page instead of per row.
+//
+// When CHEK_VIEWER_STATE_REDIS_ENABLED is set, each viewer's liked/favorited post ids are cached as
+// a Redis set. The LOADED marker means the set is complete, so misses are authoritative; viewers with
+// more than CHEK_VIEWER_STATE_REDIS_MAX_IDS rows get the OVERFLOW marker and always go to MySQL.
+// A set is built under a temporary key and RENAMEd into place, and every change bumps a per-viewer
+// generation counter; a load that saw the counter move while it read MySQL drops what it installed,
+// so a toggle committed mid-load can never be masked by a stale set.
+@Repository
+public class ViewerStateRepository {
+  private static final Logger log = LoggerFactory.getLogger(ViewerStateRepository.class);
+
+  private static final String KEY_PREFIX = "chek:content:viewer:";
+  private static final String LOADED = "#";
+  private static final String OVERFLOW = "*";
+
+  private enum Kind {
+    LIKE("like", "chek_content_post_like", SocialWriteBuffer.Kind.LIKE),
+    FAVORITE("favorite", "chek_content_post_favorite", SocialWriteBuffer.Kind.FAVORITE);
+
+    final String key;
+    final String table;
+    final SocialWriteBuffer.Kind buffered;
+
+    Kind(String key, String table, SocialWriteBuffer.Kind buffered) {
+      this.key = key;
+      this.table = table;
+      this.buffered = buffered;
+    }
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final StringRedisTemplate redis;
+  private final Duration ttl;
+  private final int maxIds;
+  private final SocialWriteBuffer socialWriteBuffer;
+
+  public ViewerStateRepository(
+      JdbcTemplate jdbcTemplate,
+      SocialWriteBuffer socialWriteBuffer,
+      ObjectProvider<StringRedisTemplate> redisProvider,
+      @Value("${CHEK_VIEWER_STATE_REDIS_ENABLED:false}") boolean redisEnabled,
+      @Value("${CHEK_VIEWER_STATE_REDIS_TTL_SECONDS:600}") long ttlSeconds,
+      @Value("${CHEK_VIEWER_STATE_REDIS_MAX_IDS:2000}") int maxIds) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.socialWriteBuffer = socialWriteBuffer;
+    this.redis = redisEnabled ? redisProvider.getIfAvailable() : null;
+    this.ttl = Duration.ofSeconds(Math.max(1L, ttlSeconds));
+    this.maxIds = Math.max(1, maxIds);
+  }
+
+  public void apply(List<PostDTO> posts, String viewerUserOneId) {
+    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
+    if (viewer.isBlank() || posts == null || posts.isEmpty()) return;
+    List<Long> ids = postIds(posts);
+    Set<Long> liked = resolve(Kind.LIKE, viewer, ids);
+    Set<Long> favorited = resolve(Kind.FAVORITE, viewer, ids);
+    for (PostDTO dto : posts) {
+      dto.setLikedByMe(liked.contains(dto.getPostId()));
+      dto.setFavoritedByMe(favorited.contains(dto.getPostId()));
+    }
+  }
+
+  public void applyLiked(List<PostDTO> posts, String viewerUserOneId) {
+    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
+    if (viewer.isBlank() || posts == null || posts.isEmpty()) return;
+    Set<Long> liked = resolve(Kind.LIKE, viewer, postIds(posts));
+    for (PostDTO dto : posts) {
+      dto.setLikedByMe(liked.contains(dto.getPostId()));
+    }
+  }
+
+  public Set<Long> likedPostIds(String viewerUserOneId, Collection<Long> postIds) {
+    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
+    if (viewer.isBlank() || postIds == null || postIds.isEmpty()) return Collections.emptySet();
+    return resolve(Kind.LIKE, viewer, new ArrayList<>(postIds));
+  }
+
+  public Set<Long> favoritedPostIds(String viewerUserOneId, Collection<Long> postIds) {
+    String viewer = viewerUserOneId == null ? "" : viewerUserOneId.trim();
+    if (viewer.isBlank() || postIds == null || postIds.isEmpty()) return Collections.emptySet();
+    return resolve(Kind.FAVORITE, viewer, new ArrayList<>(postIds));
+  }
+
+  public void onLikeChanged(String userOneId, long postId, boolean liked) {
+    afterCommit(() -> record(Kind.LIKE, userOneId, postId, liked));
+  }
+
+  public void onFavoriteChanged(String userOneId, long postId, boolean favorited) {
+    afterCommit(() -> record(Kind.FAVORITE, userOneId, postId, favorited));
+  }
+
+  // Toggles still in the write-behind buffer win over what MySQL/Redis say.
+  private Set<Long> resolve(Kind kind, String viewer, List<Long> postIds) {
+    Set<Long> ids = null;
+    if (redis != null) {
+      try {
+        ids = resolveFromRedis(kind, viewer, postIds);
+      } catch (Exception e) {
+        log.debug("viewer state redis lookup failed, falling back to db: {}", e.getMessage());
+      }
+    }
+    if (ids == null) ids = resolveFromDb(kind, viewer, postIds);
+    socialWriteBuffer.overlay(kind.buffered, viewer, postIds, ids);
+    return ids;
+  }
+
+  private Set<Long> resolveFromDb(Kind kind, String viewer, List<Long> postIds) {
+    List<Object> args = new ArrayList<>();
+    args.add(viewer);
+    args.addAll(postIds);
+    return new HashSet<>(
+        jdbcTemplate.query(
+            "SELECT post_id FROM "
+                + kind.table
+                + " WHERE user_one_id = ? AND post_id IN ("
+                + String.join(",", Collections.nCopies(postIds.size(), "?"))
+                + ")",
+            (rs, rowNum) -> rs.getLong("post_id"),
+            args.toArray()));
+  }
+
+  // Returns null when Redis cannot answer authoritatively.
+  private Set<Long> resolveFromRedis(Kind kind, String viewer, List<Long> postIds) {
+    String key = key(kind, viewer);
+    Object[] members = new Object[postIds.size() + 2];
+    members[0] = LOADED;
+    members[1] = OVERFLOW;
+    for (int i = 0; i < postIds.size(); i++) members[i + 2] = String.valueOf(postIds.get(i));
+
+    Map<Object, Boolean> hits = redis.opsForSet().isMember(key, members);
+    if (hits == null) return null;
+    if (Boolean.TRUE.equals(hits.get(OVERFLOW))) return null;
+    if (!Boolean.TRUE.equals(hits.get(LOADED))) {
+      Set<Long> all = loadIntoRedis(kind, viewer, key);
+      if (all == null) return null;
+      Set<Long> out = new HashSet<>();
+      for (Long id : postIds) {
+        if (all.contains(id)) out.add(id);
+      }
+      return out;
+    }
+
+    Set<Long> out = new HashSet<>();
+    for (Long id : postIds) {
+      if (Boolean.TRUE.equals(hits.get(String.valueOf(id)))) out.add(id);
+    }
+    return out;
+  }
+
+  private Set<Long> loadIntoRedis(Kind kind, String viewer, String key) {
+    String genKey = genKey(kind, viewer);
+    String gen = redis.opsForValue().get(genKey);
+    List<Long> ids =
+        jdbcTemplate.query(
+            "SELECT post_id FROM "
+                + kind.table
+                + " WHERE user_one_id = ? ORDER BY created_at DESC LIMIT ?",
+            (rs, rowNum) -> rs.getLong("post_id"),
+            viewer,
+            maxIds + 1);
+    boolean overflow = ids.size() > maxIds;
+    String[] members;
+    if (overflow) {
+      members = new String[] {OVERFLOW};
+    } else {
+      members = new String[ids.size() + 1];
+      members[0] = LOADED;
+      for (int i = 0; i < ids.size(); i++) members[i + 1] = String.valueOf(ids.get(i));
+    }
+    String tmp = KEY_PREFIX + "tmp:" + UUID.randomUUID();
+    redis.opsForSet().add(tmp, members);
+    redis.expire(tmp, ttl);
+    redis.rename(tmp, key);
+    if (!Objects.equals(gen, redis.opsForValue().get(genKey))) {
+      // Changed while MySQL was read: the set may be stale, the rows read are not.
+      redis.delete(key);
+      return null;
+    }
+    return overflow ? null : new HashSet<>(ids);
+  }
+
+  private void record(Kind kind, String userOneId, long postId, boolean present) {
+    if (redis == null) return;
+    String viewer = userOneId == null ? "" : userOneId.trim();
+    if (viewer.isBlank()) return;
+    String key = key(kind, viewer);
+    try {
+      String genKey = genKey(kind, viewer);
+      redis.opsForValue().increment(genKey);
+      redis.expire(genKey, ttl);
+      // Only patch sets that are already loaded; missing sets are rebuilt on the next read.
+      if (!Boolean.TRUE.equals(redis.hasKey(key))) return;
+      if (present) {
+        redis.opsForSet().add(key, String.valueOf(postId));
+      } else {
+        redis.opsForSet().remove(key, String.valueOf(postId));
+      }
+    } catch (Exception e) {
+      log.debug("viewer state redis update failed: {}", e.getMessage());
+      try {
+        redis.delete(key);
+      } catch (Exception ignored) {
+      }
+    }
+  }
+
+  private static String key(Kind kind, String viewer) {
+    return KEY_PREFIX + kind.key + ":" + viewer;
+  }
+
+  private static String genKey(Kind kind, String viewer) {
+    return KEY_PREFIX + "gen:" + kind.key + ":" + viewer;
+  }
+
+  private static List<Long> postIds(List<PostDTO> posts) {
+    return new ArrayList<>(new LinkedHashSet<>(posts.stream().map(PostDTO::getPostId).toList()));
+  }
+
+  private static void afterCommit(Runnable r) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+}
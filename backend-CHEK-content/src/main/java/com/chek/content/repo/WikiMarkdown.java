@@ -0,0 +1,176 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.wiki.WikiSectionDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.commonmark.node.Code;
+import org.commonmark.node.Heading;
+import org.commonmark.node.Node;
+import org.commonmark.node.SourceSpan;
+import org.commonmark.node.Text;
+import org.commonmark.parser.IncludeSourceSpans;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+
+// Renders wiki markdown to HTML once, at write time, together with its section index. Raw HTML in
+// the markdown is escaped and unsafe link/image URLs (javascript: etc.) are dropped, so bodyHtml can
+// be inserted as-is. Headings get id attributes equal to their section anchors.
+final class WikiMarkdown {
+  private static final Parser PARSER = Parser.builder().includeSourceSpans(IncludeSourceSpans.BLOCKS).build();
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final TypeReference<List<WikiSectionDTO>> SECTIONS = new TypeReference<>() {};
+
+  private WikiMarkdown() {}
+
+  static class Rendered {
+    final String html;
+    final List<WikiSectionDTO> sections;
+
+    Rendered(String html, List<WikiSectionDTO> sections) {
+      this.html = html;
+      this.sections = sections;
+    }
+  }
+
+  static Rendered render(String md) {
+    if (md == null) return new Rendered(null, List.of());
+    Node document = PARSER.parse(md);
+    int[] lineStarts = lineStarts(md);
+
+    Map<Node, String> anchors = new IdentityHashMap<>();
+    Set<String> used = new HashSet<>();
+    for (Node n = document.getFirstChild(); n != null; n = n.getNext()) {
+      if (n instanceof Heading) anchors.put(n, uniqueAnchor(text(n), used));
+    }
+    HtmlRenderer renderer =
+        HtmlRenderer.builder()
+            .escapeHtml(true)
+            .sanitizeUrls(true)
+            .attributeProviderFactory(
+                context ->
+                    (node, tagName, attributes) -> {
+                      String anchor = anchors.get(node);
+                      if (anchor != null) attributes.put("id", anchor);
+                    })
+            .build();
+
+    // Top-level blocks are rendered one by one so each heading's position in the HTML is known.
+    StringBuilder html = new StringBuilder(md.length() + md.length() / 4);
+    List<WikiSectionDTO> sections = new ArrayList<>();
+    for (Node n = document.getFirstChild(); n != null; n = n.getNext()) {
+      if (n instanceof Heading heading) {
+        WikiSectionDTO s = new WikiSectionDTO();
+        s.setAnchor(anchors.get(n));
+        s.setTitle(text(n));
+        s.setLevel(heading.getLevel());
+        s.setOffset(offset(n, lineStarts, md.length()));
+        s.setHtmlOffset(html.length());
+        sections.add(s);
+      }
+      renderer.render(n, html);
+    }
+    for (int i = 0; i < sections.size(); i++) {
+      WikiSectionDTO s = sections.get(i);
+      int mdEnd = md.length();
+      int htmlEnd = html.length();
+      for (int j = i + 1; j < sections.size(); j++) {
+        if (sections.get(j).getLevel() <= s.getLevel()) {
+          mdEnd = sections.get(j).getOffset();
+          htmlEnd = sections.get(j).getHtmlOffset();
+          break;
+        }
+      }
+      s.setLength(Math.max(0, mdEnd - s.getOffset()));
+      s.setHtmlLength(htmlEnd - s.getHtmlOffset());
+    }
+    return new Rendered(html.toString(), sections);
+  }
+
+  static String toJson(List<WikiSectionDTO> sections) {
+    try {
+      return JSON.writeValueAsString(sections);
+    } catch (Exception e) {
+      throw new IllegalStateException("failed to encode wiki sections", e);
+    }
+  }
+
+  // null when the column is empty or unreadable; callers re-render from the markdown then.
+  static List<WikiSectionDTO> fromJson(String json) {
+    if (json == null || json.isBlank()) return null;
+    try {
+      return JSON.readValue(json, SECTIONS);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static int offset(Node n, int[] lineStarts, int max) {
+    List<SourceSpan> spans = n.getSourceSpans();
+    if (spans.isEmpty()) return max;
+    SourceSpan span = spans.get(0);
+    if (span.getLineIndex() >= lineStarts.length) return max;
+    return Math.min(max, lineStarts[span.getLineIndex()] + span.getColumnIndex());
+  }
+
+  // Line breaks as the parser sees them: \n, \r\n or \r.
+  private static int[] lineStarts(String s) {
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\r') {
+        if (i + 1 < s.length() && s.charAt(i + 1) == '\n') i++;
+        starts.add(i + 1);
+      } else if (c == '\n') {
+        starts.add(i + 1);
+      }
+    }
+    return starts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static String text(Node node) {
+    StringBuilder sb = new StringBuilder();
+    appendText(node, sb);
+    return sb.toString().trim();
+  }
+
+  private static void appendText(Node node, StringBuilder sb) {
+    for (Node n = node.getFirstChild(); n != null; n = n.getNext()) {
+      if (n instanceof Text t) {
+        sb.append(t.getLiteral());
+      } else if (n instanceof Code c) {
+        sb.append(c.getLiteral());
+      } else {
+        appendText(n, sb);
+      }
+    }
+  }
+
+  // Lower-cased letters and digits (any script) joined by '-'; repeats get -1, -2, ...
+  private static String uniqueAnchor(String title, Set<String> used) {
+    StringBuilder sb = new StringBuilder();
+    boolean dash = false;
+    for (int i = 0; i < title.length(); ) {
+      int cp = title.codePointAt(i);
+      i += Character.charCount(cp);
+      if (Character.isLetterOrDigit(cp)) {
+        if (dash && sb.length() > 0) sb.append('-');
+        sb.appendCodePoint(Character.toLowerCase(cp));
+        dash = false;
+      } else {
+        dash = true;
+      }
+    }
+    String base = sb.length() == 0 ? "section" : sb.toString().toLowerCase(Locale.ROOT);
+    String anchor = base;
+    for (int k = 1; !used.add(anchor); k++) anchor = base + "-" + k;
+    return anchor;
+  }
+}
@@ -2,49 +2,131 @@ package com.chek.content.repo;
 
 import com.chek.content.model.wiki.CreateWikiEntryRequest;
 import com.chek.content.model.wiki.WikiEntryDTO;
+import com.chek.content.search.SearchIndexService;
+import com.chek.content.search.TagIndexService;
+import com.chek.content.search.WikiTitleLinker;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import org.springframework.dao.DataIntegrityViolationException;
+import java.util.Map;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public class WikiRepository {
-  private final JdbcTemplate jdbcTemplate;
+  private static final int MAX_IDS_PER_QUERY = 500;
+
+  static final String ENTRY_SELECT =
+      "SELECT id, slug, title, summary, body_md, body_html, sections_json, is_public, is_indexable, published_at, created_at, updated_at "
+          + "FROM chek_content_wiki_entry ";
+  // List rows: everything but the body columns.
+  static final String LIST_SELECT =
+      "SELECT e.id, e.slug, e.title, e.summary, e.is_public, e.is_indexable, e.published_at, e.created_at, e.updated_at "
+          + "FROM chek_content_wiki_entry e ";
 
-  public WikiRepository(JdbcTemplate jdbcTemplate) {
+  private final JdbcTemplate jdbcTemplate;
+  private final SearchIndexService searchIndexService;
+  private final TagIndexService tagIndexService;
+  private final TagDictionary tagDictionary;
+  private final ChangeLogRepository changeLogRepository;
+  private final WikiSnapshot wikiSnapshot;
+  private final WikiTitleLinker wikiTitleLinker;
+
+  public WikiRepository(
+      JdbcTemplate jdbcTemplate,
+      SearchIndexService searchIndexService,
+      TagIndexService tagIndexService,
+      TagDictionary tagDictionary,
+      ChangeLogRepository changeLogRepository,
+      WikiSnapshot wikiSnapshot,
+      WikiTitleLinker wikiTitleLinker) {
     this.jdbcTemplate = jdbcTemplate;
+    this.searchIndexService = searchIndexService;
+    this.tagIndexService = tagIndexService;
+    this.tagDictionary = tagDictionary;
+    this.changeLogRepository = changeLogRepository;
+    this.wikiSnapshot = wikiSnapshot;
+    this.wikiTitleLinker = wikiTitleLinker;
   }
 
-  public List<WikiEntryDTO> list(String query, List<String> tags, Long cursor, int limit) {
+  // Same paging as PostRepository.list: search results (query with the index ready) are continued
+  // by a SearchCursor rank token, everything else by the last id.
+  public WikiPage list(String query, List<String> tags, boolean matchAllTags, String cursor, int limit) {
     int n = Math.max(1, Math.min(limit, 100));
-    long cur = cursor == null ? 0L : cursor;
     List<String> tagNames = normalizeTags(tags);
 
-    StringBuilder sql = new StringBuilder();
-    List<Object> args = new ArrayList<>();
+    boolean hasQuery = query != null && !query.isBlank();
+    boolean idCursor = SearchCursor.isIdCursor(cursor);
+    if (hasQuery && searchIndexReady(tagNames) && (!idCursor || SearchCursor.beforeId(cursor) == 0)) {
+      return listSearch(query, tagNames, matchAllTags, idCursor ? null : cursor, n);
+    }
+    if (!idCursor) throw new IllegalArgumentException("invalid cursor");
+    List<WikiEntryDTO> list = listBefore(query, tagNames, matchAllTags, SearchCursor.beforeId(cursor), n);
+    String next = list.size() >= n ? String.valueOf(list.get(list.size() - 1).getEntryId()) : null;
+    return new WikiPage(list, next);
+  }
 
-    sql.append("SELECT ");
-    if (!tagNames.isEmpty()) {
-      sql.append("DISTINCT ");
+  // Tag filters run inside the search index, so they need the tag index too.
+  private boolean searchIndexReady(List<String> tagNames) {
+    return searchIndexService.isWikiIndexReady() && (tagNames.isEmpty() || tagIndexService.isWikiIndexReady());
+  }
+
+  private WikiPage listSearch(String query, List<String> tagNames, boolean matchAllTags, String cursor, int n) {
+    int offset = SearchCursor.offset(cursor);
+    SearchIndexService.Ranked ranked =
+        searchIndexService.rankWiki(query, tagIndexService.entryFilter(tagNames, matchAllTags), offset, n);
+    List<Long> candidates = SearchCursor.from(ranked.ids, offset);
+    List<WikiEntryDTO> list = wikiSnapshot.list(candidates, 0L, List.of(), false, n);
+    if (list == null) {
+      list = listByRankedIds(candidates, List.of(), false, n);
+      hydrateTags(list);
+    }
+    String next =
+        list.isEmpty()
+            ? null
+            : SearchCursor.next(ranked.ids, offset, list.size(), n, list.get(list.size() - 1).getEntryId());
+    return new WikiPage(list, next, next == null && ranked.truncated);
+  }
+
+  private List<WikiEntryDTO> listBefore(
+      String query, List<String> tagNames, boolean matchAllTags, long cur, int n) {
+    boolean hasQuery = query != null && !query.isBlank();
+    boolean indexed = hasQuery && searchIndexReady(tagNames);
+    // Numeric cursor on a search: matches below it, newest first, tag filter applied in the index.
+    // Twice the page, so a few ids gone from MySQL do not end the page early.
+    List<Long> matches =
+        indexed
+            ? searchIndexService.searchWikiBefore(query, tagIndexService.entryFilter(tagNames, matchAllTags), cur, n * 2)
+            : null;
+    if (wikiSnapshot.isReady() && (!hasQuery || indexed)) {
+      List<WikiEntryDTO> list = wikiSnapshot.list(matches, cur, indexed ? List.of() : tagNames, matchAllTags, n);
+      if (list != null) return list;
     }
-    sql.append(
-        "e.id, e.slug, e.title, e.summary, e.is_public, e.is_indexable, e.published_at, e.created_at, e.updated_at "
-            + "FROM chek_content_wiki_entry e ");
 
-    if (!tagNames.isEmpty()) {
-      sql.append(
-          "JOIN chek_content_wiki_entry_tag et ON e.id = et.entry_id "
-              + "JOIN chek_content_tag t ON et.tag_id = t.id ");
+    List<Long> candidates = matches;
+    if (!hasQuery && !tagNames.isEmpty() && tagIndexService.isWikiIndexReady()) {
+      candidates = tagIndexService.entryIdsBefore(tagNames, matchAllTags, cur, n);
+    }
+    if (candidates != null) {
+      List<WikiEntryDTO> list = listByRankedIds(candidates, List.of(), false, n);
+      hydrateTags(list);
+      return list;
     }
 
+    StringBuilder sql = new StringBuilder();
+    List<Object> args = new ArrayList<>();
+
+    sql.append(LIST_SELECT);
     sql.append("WHERE e.is_public = TRUE AND e.is_indexable = TRUE ");
 
     if (cur > 0) {
@@ -60,141 +142,178 @@ public class WikiRepository {
       args.add(q);
     }
 
-    if (!tagNames.isEmpty()) {
-      sql.append("AND t.name IN (");
-      sql.append(String.join(",", Collections.nCopies(tagNames.size(), "?")));
-      sql.append(") ");
-      args.addAll(tagNames);
-    }
+    appendTagFilter(sql, args, tagNames, matchAllTags);
 
     sql.append("ORDER BY e.id DESC LIMIT ? ");
     args.add(n);
 
     List<WikiEntryDTO> list =
-        jdbcTemplate.query(
-            sql.toString(),
-            (rs, rowNum) -> {
-              WikiEntryDTO dto = new WikiEntryDTO();
-              dto.setEntryId(rs.getLong("id"));
-              dto.setSlug(rs.getString("slug"));
-              dto.setTitle(rs.getString("title"));
-              dto.setSummary(rs.getString("summary"));
-              dto.setBody(null);
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              Timestamp publishedAt = rs.getTimestamp("published_at");
-              dto.setPublishedAt(publishedAt == null ? null : publishedAt.toInstant());
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            args.toArray());
-
-    for (WikiEntryDTO dto : list) {
-      dto.setTags(listTagNamesByEntryId(dto.getEntryId()));
-    }
+        jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapListEntry(rs), args.toArray());
+
+    hydrateTags(list);
     return list;
   }
 
-  public WikiEntryDTO get(long entryId) {
-    List<WikiEntryDTO> list =
-        jdbcTemplate.query(
-            "SELECT id, slug, title, summary, body_md, is_public, is_indexable, published_at, created_at, updated_at "
-                + "FROM chek_content_wiki_entry WHERE id = ?",
-            (rs, rowNum) -> {
-              WikiEntryDTO dto = new WikiEntryDTO();
-              dto.setEntryId(rs.getLong("id"));
-              dto.setSlug(rs.getString("slug"));
-              dto.setTitle(rs.getString("title"));
-              dto.setSummary(rs.getString("summary"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              Timestamp publishedAt = rs.getTimestamp("published_at");
-              dto.setPublishedAt(publishedAt == null ? null : publishedAt.toInstant());
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            entryId);
+  private List<WikiEntryDTO> listByRankedIds(
+      List<Long> rankedIds, List<String> tagNames, boolean matchAllTags, int n) {
+    List<WikiEntryDTO> out = new ArrayList<>();
+    int chunkSize = Math.max(50, n * 2);
+    for (int from = 0; from < rankedIds.size() && out.size() < n; from += chunkSize) {
+      List<Long> chunk = rankedIds.subList(from, Math.min(rankedIds.size(), from + chunkSize));
+      StringBuilder sql =
+          new StringBuilder(
+              LIST_SELECT + "WHERE e.is_public = TRUE AND e.is_indexable = TRUE AND e.id IN (");
+      sql.append(String.join(",", Collections.nCopies(chunk.size(), "?")));
+      sql.append(") ");
+      List<Object> args = new ArrayList<>(chunk);
+
+      appendTagFilter(sql, args, tagNames, matchAllTags);
+
+      Map<Long, WikiEntryDTO> byId = new HashMap<>();
+      jdbcTemplate.query(
+          sql.toString(),
+          rs -> {
+            WikiEntryDTO dto = mapListEntry(rs);
+            byId.put(dto.getEntryId(), dto);
+          },
+          args.toArray());
+      for (Long id : chunk) {
+        WikiEntryDTO dto = byId.get(id);
+        if (dto == null) continue;
+        out.add(dto);
+        if (out.size() >= n) break;
+      }
+    }
+    return out;
+  }
 
-    if (list.isEmpty()) return null;
-    WikiEntryDTO dto = list.get(0);
-    dto.setTags(listTagNamesByEntryId(dto.getEntryId()));
-    return dto;
+  private static void appendTagFilter(
+      StringBuilder sql, List<Object> args, List<String> tagNames, boolean matchAll) {
+    if (tagNames.isEmpty()) return;
+    sql.append(
+        "AND e.id IN (SELECT et.entry_id FROM chek_content_wiki_entry_tag et "
+            + "JOIN chek_content_tag t ON et.tag_id = t.id WHERE t.name IN (");
+    sql.append(String.join(",", Collections.nCopies(tagNames.size(), "?")));
+    sql.append(") ");
+    args.addAll(tagNames);
+    if (matchAll) {
+      sql.append("GROUP BY et.entry_id HAVING COUNT(DISTINCT et.tag_id) = ? ");
+      args.add(tagNames.size());
+    }
+    sql.append(") ");
+  }
+
+  public WikiEntryDTO get(long entryId) {
+    WikiEntryDTO cached = wikiSnapshot.get(entryId);
+    return cached != null ? cached : load(entryId);
   }
 
   public WikiEntryDTO getBySlug(String slug) {
     if (slug == null || slug.isBlank()) return null;
+    WikiEntryDTO cached = wikiSnapshot.getBySlug(slug.trim());
+    return cached != null ? cached : loadBySlug(slug);
+  }
+
+  private WikiEntryDTO load(long entryId) {
+    List<WikiEntryDTO> list = jdbcTemplate.query(ENTRY_SELECT + "WHERE id = ?", (rs, rowNum) -> mapEntry(rs), entryId);
+    if (list.isEmpty()) return null;
+    hydrateTags(list);
+    return list.get(0);
+  }
+
+  private WikiEntryDTO loadBySlug(String slug) {
     List<WikiEntryDTO> list =
+        jdbcTemplate.query(ENTRY_SELECT + "WHERE slug = ?", (rs, rowNum) -> mapEntry(rs), slug.trim());
+    if (list.isEmpty()) return null;
+    hydrateTags(list);
+    return list.get(0);
+  }
+
+  // Validators for the wiki detail endpoints; see PostRepository.version.
+  public EntityVersion version(long entryId) {
+    EntityVersion cached = wikiSnapshot.version(entryId);
+    return cached != null ? cached : queryVersion("WHERE id = ?", entryId);
+  }
+
+  public EntityVersion versionBySlug(String slug) {
+    if (slug == null || slug.isBlank()) return null;
+    EntityVersion cached = wikiSnapshot.versionBySlug(slug.trim());
+    return cached != null ? cached : queryVersion("WHERE slug = ?", slug.trim());
+  }
+
+  private EntityVersion queryVersion(String where, Object arg) {
+    List<EntityVersion> list =
         jdbcTemplate.query(
-            "SELECT id, slug, title, summary, body_md, is_public, is_indexable, published_at, created_at, updated_at "
-                + "FROM chek_content_wiki_entry WHERE slug = ?",
-            (rs, rowNum) -> {
-              WikiEntryDTO dto = new WikiEntryDTO();
-              dto.setEntryId(rs.getLong("id"));
-              dto.setSlug(rs.getString("slug"));
-              dto.setTitle(rs.getString("title"));
-              dto.setSummary(rs.getString("summary"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              Timestamp publishedAt = rs.getTimestamp("published_at");
-              dto.setPublishedAt(publishedAt == null ? null : publishedAt.toInstant());
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            slug.trim());
+            "SELECT id, version, updated_at, is_public, is_indexable FROM chek_content_wiki_entry " + where,
+            (rs, rowNum) ->
+                entryVersion(
+                    rs.getLong("id"),
+                    rs.getLong("version"),
+                    rs.getTimestamp("updated_at"),
+                    rs.getBoolean("is_public") && rs.getBoolean("is_indexable")),
+            arg);
+    return list.isEmpty() ? null : list.get(0);
+  }
 
-    if (list.isEmpty()) return null;
-    WikiEntryDTO dto = list.get(0);
-    dto.setTags(listTagNamesByEntryId(dto.getEntryId()));
-    return dto;
+  static EntityVersion entryVersion(long entryId, long version, Timestamp updatedAt, boolean visible) {
+    return new EntityVersion(
+        "W/\"w" + entryId + "-" + version + "\"", updatedAt == null ? 0L : updatedAt.getTime(), visible, null);
   }
 
+  @Transactional
   public WikiEntryDTO create(CreateWikiEntryRequest req) {
+    WikiMarkdown.Rendered rendered = WikiMarkdown.render(req.getBody());
     KeyHolder keyHolder = new GeneratedKeyHolder();
     jdbcTemplate.update(
         conn -> {
           PreparedStatement ps =
               conn.prepareStatement(
-                  "INSERT INTO chek_content_wiki_entry(slug, title, summary, body_md, is_public, is_indexable, published_at, created_at, updated_at) "
-                      + "VALUES(?, ?, ?, ?, TRUE, TRUE, NOW(), NOW(), NOW())",
+                  "INSERT INTO chek_content_wiki_entry(slug, title, summary, body_md, body_html, sections_json, is_public, is_indexable, published_at, created_at, updated_at) "
+                      + "VALUES(?, ?, ?, ?, ?, ?, TRUE, TRUE, NOW(), NOW(), NOW())",
                   new String[] {"id"});
           ps.setString(1, req.getSlug());
           ps.setString(2, req.getTitle());
           ps.setString(3, req.getSummary());
           ps.setString(4, req.getBody());
+          ps.setString(5, rendered.html);
+          ps.setString(6, WikiMarkdown.toJson(rendered.sections));
           return ps;
         },
         keyHolder);
     long id = keyHolder.getKey().longValue();
     upsertEntryTags(id, req.getTags());
-    return get(id);
+    changeLogRepository.record(ChangeLogRepository.WIKI, id, ChangeLogRepository.UPSERT);
+    return afterWrite(load(id));
   }
 
+  @Transactional
   public WikiEntryDTO update(long entryId, CreateWikiEntryRequest req) {
+    WikiMarkdown.Rendered rendered = WikiMarkdown.render(req.getBody());
     int updated =
         jdbcTemplate.update(
-            "UPDATE chek_content_wiki_entry SET slug = ?, title = ?, summary = ?, body_md = ?, updated_at = NOW() "
-                + "WHERE id = ?",
+            "UPDATE chek_content_wiki_entry SET slug = ?, title = ?, summary = ?, body_md = ?, body_html = ?, sections_json = ?, "
+                + "version = version + 1, updated_at = NOW() WHERE id = ?",
             req.getSlug(),
             req.getTitle(),
             req.getSummary(),
             req.getBody(),
+            rendered.html,
+            WikiMarkdown.toJson(rendered.sections),
             entryId);
     if (updated <= 0) return null;
 
     jdbcTemplate.update("DELETE FROM chek_content_wiki_entry_tag WHERE entry_id = ?", entryId);
     upsertEntryTags(entryId, req.getTags());
-    return get(entryId);
+    changeLogRepository.record(ChangeLogRepository.WIKI, entryId, ChangeLogRepository.UPSERT);
+    return afterWrite(load(entryId));
+  }
+
+  private WikiEntryDTO afterWrite(WikiEntryDTO dto) {
+    if (dto != null) wikiSnapshot.put(dto, queryVersion("WHERE id = ?", dto.getEntryId()));
+    searchIndexService.indexWikiEntry(dto);
+    if (dto != null) tagIndexService.setEntryVisible(dto.getEntryId(), dto.isPublic() && dto.isIndexable());
+    if (dto != null) wikiTitleLinker.putEntry(dto.getEntryId(), dto.getTitle(), dto.isPublic() && dto.isIndexable());
+    return dto;
   }
 
   public List<WikiEntryDTO> listPublicForSsg(Instant updatedAfter, Long cursor, int limit) {
@@ -202,10 +321,7 @@ public class WikiRepository {
     long cur = cursor == null ? 0L : cursor;
     List<Object> args = new ArrayList<>();
 
-    StringBuilder sql =
-        new StringBuilder(
-            "SELECT id, slug, title, summary, body_md, is_public, is_indexable, published_at, created_at, updated_at "
-                + "FROM chek_content_wiki_entry WHERE is_public = TRUE AND is_indexable = TRUE ");
+    StringBuilder sql = new StringBuilder(ENTRY_SELECT + "WHERE is_public = TRUE AND is_indexable = TRUE ");
 
     if (updatedAfter != null) {
       sql.append("AND updated_at > ? ");
@@ -219,81 +335,103 @@ public class WikiRepository {
     sql.append("ORDER BY id DESC LIMIT ? ");
     args.add(n);
 
-    List<WikiEntryDTO> list =
-        jdbcTemplate.query(
-            sql.toString(),
-            (rs, rowNum) -> {
-              WikiEntryDTO dto = new WikiEntryDTO();
-              dto.setEntryId(rs.getLong("id"));
-              dto.setSlug(rs.getString("slug"));
-              dto.setTitle(rs.getString("title"));
-              dto.setSummary(rs.getString("summary"));
-              dto.setBody(rs.getString("body_md"));
-              dto.setPublic(rs.getBoolean("is_public"));
-              dto.setIndexable(rs.getBoolean("is_indexable"));
-              Timestamp publishedAt = rs.getTimestamp("published_at");
-              dto.setPublishedAt(publishedAt == null ? null : publishedAt.toInstant());
-              Timestamp createdAt = rs.getTimestamp("created_at");
-              dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
-              Timestamp updatedAt = rs.getTimestamp("updated_at");
-              dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
-              return dto;
-            },
-            args.toArray());
-
-    for (WikiEntryDTO dto : list) {
-      dto.setTags(listTagNamesByEntryId(dto.getEntryId()));
-    }
+    List<WikiEntryDTO> list = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapEntry(rs), args.toArray());
+    hydrateTags(list);
     return list;
   }
 
-  private void upsertEntryTags(long entryId, List<String> tags) {
-    List<String> tagNames = normalizeTags(tags);
-    if (tagNames.isEmpty()) return;
-
-    for (String name : tagNames) {
-      Long tagId = findOrCreateTagId(name);
-      if (tagId == null) continue;
-      try {
-        jdbcTemplate.update(
-            "INSERT INTO chek_content_wiki_entry_tag(entry_id, tag_id) VALUES(?, ?)",
-            entryId,
-            tagId);
-      } catch (DataIntegrityViolationException ignored) {
-        // ignore duplicate
-      }
+  // Sets tags on a whole batch with one IN (...) query.
+  void hydrateTags(List<WikiEntryDTO> entries) {
+    if (entries.isEmpty()) return;
+    Map<Long, List<String>> byEntry = new HashMap<>();
+    List<Long> ids = entries.stream().map(WikiEntryDTO::getEntryId).distinct().toList();
+    for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+      List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+      jdbcTemplate.query(
+          "SELECT et.entry_id, t.name FROM chek_content_wiki_entry_tag et "
+              + "JOIN chek_content_tag t ON t.id = et.tag_id "
+              + "WHERE et.entry_id IN ("
+              + String.join(",", Collections.nCopies(chunk.size(), "?"))
+              + ") ORDER BY et.entry_id ASC, t.id ASC",
+          rs -> {
+            byEntry.computeIfAbsent(rs.getLong("entry_id"), k -> new ArrayList<>()).add(rs.getString("name"));
+          },
+          chunk.toArray());
+    }
+    for (WikiEntryDTO dto : entries) {
+      dto.setTags(byEntry.getOrDefault(dto.getEntryId(), Collections.emptyList()));
     }
   }
 
-  private List<String> listTagNamesByEntryId(long entryId) {
-    return jdbcTemplate.query(
-        "SELECT t.name FROM chek_content_tag t "
-            + "JOIN chek_content_wiki_entry_tag et ON t.id = et.tag_id "
-            + "WHERE et.entry_id = ? ORDER BY t.id ASC",
-        (rs, rowNum) -> rs.getString("name"),
-        entryId);
+  // Fills body_html/sections_json for entries written before V13. Returns the last entry id
+  // scanned, or -1 when there is nothing left.
+  public long backfillRenderings(long afterId, int batchSize) {
+    int n = Math.max(1, Math.min(batchSize, 5000));
+    List<Object[]> rows =
+        jdbcTemplate.query(
+            "SELECT id, body_md FROM chek_content_wiki_entry WHERE id > ? AND body_md IS NOT NULL "
+                + "AND (body_html IS NULL OR sections_json IS NULL) ORDER BY id ASC LIMIT ?",
+            (rs, rowNum) -> new Object[] {rs.getLong("id"), rs.getString("body_md")},
+            afterId,
+            n);
+    if (rows.isEmpty()) return -1L;
+    List<Object[]> args = new ArrayList<>(rows.size());
+    for (Object[] r : rows) {
+      WikiMarkdown.Rendered rendered = WikiMarkdown.render((String) r[1]);
+      args.add(new Object[] {rendered.html, WikiMarkdown.toJson(rendered.sections), r[0]});
+    }
+    // Derived columns only: updated_at stays as it is. An entry updated meanwhile already has both.
+    jdbcTemplate.batchUpdate(
+        "UPDATE chek_content_wiki_entry SET body_html = ?, sections_json = ? "
+            + "WHERE id = ? AND (body_html IS NULL OR sections_json IS NULL)",
+        args);
+    return (Long) rows.get(rows.size() - 1)[0];
   }
 
-  private Long findOrCreateTagId(String name) {
-    List<Long> existing =
-        jdbcTemplate.query(
-            "SELECT id FROM chek_content_tag WHERE name = ?",
-            (rs, rowNum) -> rs.getLong("id"),
-            name);
-    if (!existing.isEmpty()) return existing.get(0);
-
-    try {
-      jdbcTemplate.update("INSERT INTO chek_content_tag(name) VALUES(?)", name);
-    } catch (DataIntegrityViolationException ignored) {
-      // ignore duplicate
+  static WikiEntryDTO mapEntry(ResultSet rs) throws SQLException {
+    WikiEntryDTO dto = mapListEntry(rs);
+    dto.setBody(rs.getString("body_md"));
+    dto.setBodyHtml(rs.getString("body_html"));
+    dto.setSections(WikiMarkdown.fromJson(rs.getString("sections_json")));
+    // Rows written before V13 that WikiRenderBackfill has not reached yet: render on read.
+    if (dto.getBody() != null && (dto.getBodyHtml() == null || dto.getSections() == null)) {
+      WikiMarkdown.Rendered rendered = WikiMarkdown.render(dto.getBody());
+      dto.setBodyHtml(rendered.html);
+      dto.setSections(rendered.sections);
     }
+    return dto;
+  }
 
-    List<Long> again =
-        jdbcTemplate.query(
-            "SELECT id FROM chek_content_tag WHERE name = ?",
-            (rs, rowNum) -> rs.getLong("id"),
-            name);
-    return again.isEmpty() ? null : again.get(0);
+  // The LIST_SELECT columns (ENTRY_SELECT has them too); body fields stay null.
+  static WikiEntryDTO mapListEntry(ResultSet rs) throws SQLException {
+    WikiEntryDTO dto = new WikiEntryDTO();
+    dto.setEntryId(rs.getLong("id"));
+    dto.setSlug(rs.getString("slug"));
+    dto.setTitle(rs.getString("title"));
+    dto.setSummary(rs.getString("summary"));
+    dto.setPublic(rs.getBoolean("is_public"));
+    dto.setIndexable(rs.getBoolean("is_indexable"));
+    Timestamp publishedAt = rs.getTimestamp("published_at");
+    dto.setPublishedAt(publishedAt == null ? null : publishedAt.toInstant());
+    Timestamp createdAt = rs.getTimestamp("created_at");
+    dto.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+    Timestamp updatedAt = rs.getTimestamp("updated_at");
+    dto.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+    return dto;
+  }
+
+  private void upsertEntryTags(long entryId, List<String> tags) {
+    List<String> tagNames = normalizeTags(tags);
+    tagIndexService.setEntryTags(entryId, tagNames);
+    if (tagNames.isEmpty()) return;
+
+    List<Object[]> rows =
+        tagDictionary.resolve(tagNames).values().stream()
+            .distinct()
+            .map(tagId -> new Object[] {entryId, tagId})
+            .toList();
+    jdbcTemplate.batchUpdate(
+        "INSERT IGNORE INTO chek_content_wiki_entry_tag(entry_id, tag_id) VALUES(?, ?)", rows);
   }
 
   private static List<String> normalizeTags(List<String> tags) {
@@ -307,4 +445,22 @@ public class WikiRepository {
     }
     return out.stream().distinct().toList();
   }
+
+  // A page of entries plus the token for the next one (null on the last page). truncated: a
+  // relevance search ended at CHEK_SEARCH_MAX_CANDIDATES with matches left over.
+  public static class WikiPage {
+    public final List<WikiEntryDTO> items;
+    public final String nextCursor;
+    public final boolean truncated;
+
+    WikiPage(List<WikiEntryDTO> items, String nextCursor) {
+      this(items, nextCursor, false);
+    }
+
+    WikiPage(List<WikiEntryDTO> items, String nextCursor, boolean truncated) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+      this.truncated = truncated;
+    }
+  }
 }
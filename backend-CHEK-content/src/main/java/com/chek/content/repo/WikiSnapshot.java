@@ -0,0 +1,302 @@
+package com.chek.content.repo;
+
+import com.chek.content.model.wiki.WikiEntryDTO;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Every public+indexable wiki entry (with tags and its version validator) in one immutable
+// snapshot: id map, slug map and ids sorted descending. Readers take it from an AtomicReference
+// without locking; WikiRepository writes swap in a copy after commit. A lookup that misses (hidden
+// entries, entries created on another instance since the last reload) falls back to MySQL.
+//
+// The snapshot is reloaded periodically to pick up writes made by other instances. Above
+// CHEK_WIKI_SNAPSHOT_MAX_ENTRIES it stays unloaded and every read goes to MySQL.
+@Repository
+public class WikiSnapshot {
+  private static final Logger log = LoggerFactory.getLogger(WikiSnapshot.class);
+  private static final int LOAD_BATCH = 1000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+  private final int maxEntries;
+
+  private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+  private volatile boolean ready;
+  private List<UnaryOperator<Snapshot>> pending;
+
+  public WikiSnapshot(
+      JdbcTemplate jdbcTemplate,
+      @Value("${CHEK_WIKI_SNAPSHOT_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_WIKI_SNAPSHOT_MAX_ENTRIES:20000}") int maxEntries) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+    this.maxEntries = Math.max(1, maxEntries);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuild();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_WIKI_SNAPSHOT_REBUILD_INTERVAL_MS:300000}",
+      fixedDelayString = "${CHEK_WIKI_SNAPSHOT_REBUILD_INTERVAL_MS:300000}")
+  public void scheduledRebuild() {
+    rebuild();
+  }
+
+  public void rebuild() {
+    if (!enabled) return;
+    long started = System.currentTimeMillis();
+    synchronized (this) {
+      pending = new ArrayList<>();
+    }
+    try {
+      Map<Long, Entry> byId = new HashMap<>();
+      long cursor = 0L;
+      while (true) {
+        List<Entry> rows =
+            jdbcTemplate.query(
+                "SELECT id, slug, title, summary, body_md, body_html, sections_json, is_public, is_indexable, published_at, created_at, updated_at, version "
+                    + "FROM chek_content_wiki_entry WHERE is_public = TRUE AND is_indexable = TRUE AND id > ? "
+                    + "ORDER BY id ASC LIMIT ?",
+                (rs, rowNum) -> {
+                  Timestamp updatedAt = rs.getTimestamp("updated_at");
+                  return new Entry(
+                      WikiRepository.mapEntry(rs),
+                      WikiRepository.entryVersion(
+                          rs.getLong("id"), rs.getLong("version"), updatedAt, true));
+                },
+                cursor,
+                LOAD_BATCH);
+        if (rows.isEmpty()) break;
+        for (Entry e : rows) byId.put(e.dto.getEntryId(), e);
+        if (byId.size() > maxEntries) {
+          log.warn("wiki snapshot: more than {} entries, serving wiki reads from MySQL", maxEntries);
+          synchronized (this) {
+            current.set(Snapshot.EMPTY);
+            ready = false;
+          }
+          return;
+        }
+        cursor = rows.get(rows.size() - 1).dto.getEntryId();
+      }
+
+      Map<Long, List<String>> tags = new HashMap<>();
+      jdbcTemplate.query(
+          "SELECT et.entry_id, t.name FROM chek_content_wiki_entry_tag et "
+              + "JOIN chek_content_tag t ON t.id = et.tag_id ORDER BY et.entry_id ASC, t.id ASC",
+          rs -> {
+            long id = rs.getLong("entry_id");
+            if (byId.containsKey(id)) tags.computeIfAbsent(id, k -> new ArrayList<>()).add(rs.getString("name"));
+          });
+      for (Entry e : byId.values()) {
+        e.dto.setTags(Collections.unmodifiableList(tags.getOrDefault(e.dto.getEntryId(), Collections.emptyList())));
+      }
+
+      Snapshot next = Snapshot.of(byId);
+      synchronized (this) {
+        for (UnaryOperator<Snapshot> op : pending) next = op.apply(next);
+        current.set(next);
+        ready = true;
+      }
+      log.info("wiki snapshot: {} entries loaded in {} ms", next.byId.size(), System.currentTimeMillis() - started);
+    } catch (Exception e) {
+      log.warn("wiki snapshot rebuild failed", e);
+    } finally {
+      synchronized (this) {
+        pending = null;
+      }
+    }
+  }
+
+  public boolean isReady() {
+    return enabled && ready;
+  }
+
+  // Copies, so callers may modify them; null on a miss.
+  public WikiEntryDTO get(long entryId) {
+    if (!isReady()) return null;
+    Entry e = current.get().byId.get(entryId);
+    return e == null ? null : copy(e.dto, true);
+  }
+
+  public WikiEntryDTO getBySlug(String slug) {
+    if (!isReady()) return null;
+    Entry e = current.get().bySlug.get(slug);
+    return e == null ? null : copy(e.dto, true);
+  }
+
+  public EntityVersion version(long entryId) {
+    if (!isReady()) return null;
+    Entry e = current.get().byId.get(entryId);
+    return e == null ? null : e.version;
+  }
+
+  public EntityVersion versionBySlug(String slug) {
+    if (!isReady()) return null;
+    Entry e = current.get().bySlug.get(slug);
+    return e == null ? null : e.version;
+  }
+
+  // Up to n entries without body, in candidateIds order (or newest first below beforeId when
+  // candidateIds is null), filtered by tag names. Returns null when the snapshot is not loaded.
+  public List<WikiEntryDTO> list(
+      List<Long> candidateIds, long beforeId, List<String> tagNames, boolean matchAllTags, int n) {
+    if (!isReady()) return null;
+    Snapshot s = current.get();
+    Set<String> wanted = new HashSet<>();
+    for (String t : tagNames) wanted.add(t.toLowerCase(Locale.ROOT));
+
+    List<WikiEntryDTO> out = new ArrayList<>(n);
+    if (candidateIds != null) {
+      for (Long id : candidateIds) {
+        if (out.size() >= n) break;
+        Entry e = s.byId.get(id);
+        if (e != null && matchesTags(e.dto, wanted, matchAllTags)) out.add(copy(e.dto, false));
+      }
+      return out;
+    }
+    for (int i = s.indexBelow(beforeId > 0 ? beforeId : Long.MAX_VALUE); i < s.idsDesc.length && out.size() < n; i++) {
+      Entry e = s.byId.get(s.idsDesc[i]);
+      if (matchesTags(e.dto, wanted, matchAllTags)) out.add(copy(e.dto, false));
+    }
+    return out;
+  }
+
+  // Applied after commit so a rolled-back write never becomes visible; entries that are no longer
+  // public+indexable are dropped.
+  public void put(WikiEntryDTO dto, EntityVersion version) {
+    if (!enabled || dto == null || version == null) return;
+    Entry entry = new Entry(copy(dto, true), version);
+    entry.dto.setTags(dto.getTags() == null ? Collections.emptyList() : List.copyOf(dto.getTags()));
+    boolean visible = dto.isPublic() && dto.isIndexable();
+    Runnable r = () -> apply(s -> visible ? s.put(entry) : s.remove(entry.dto.getEntryId()));
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+
+  private synchronized void apply(UnaryOperator<Snapshot> op) {
+    current.set(op.apply(current.get()));
+    if (pending != null) pending.add(op);
+  }
+
+  private static boolean matchesTags(WikiEntryDTO dto, Set<String> wanted, boolean matchAll) {
+    if (wanted.isEmpty()) return true;
+    int matched = 0;
+    Set<String> seen = new HashSet<>();
+    for (String t : dto.getTags()) {
+      String k = t.toLowerCase(Locale.ROOT);
+      if (wanted.contains(k) && seen.add(k)) matched++;
+    }
+    return matchAll ? matched == wanted.size() : matched > 0;
+  }
+
+  private static WikiEntryDTO copy(WikiEntryDTO src, boolean withBody) {
+    WikiEntryDTO dto = new WikiEntryDTO();
+    dto.setEntryId(src.getEntryId());
+    dto.setSlug(src.getSlug());
+    dto.setTitle(src.getTitle());
+    dto.setSummary(src.getSummary());
+    dto.setBody(withBody ? src.getBody() : null);
+    dto.setBodyHtml(withBody ? src.getBodyHtml() : null);
+    dto.setSections(withBody ? src.getSections() : null);
+    dto.setTags(src.getTags());
+    dto.setPublic(src.isPublic());
+    dto.setIndexable(src.isIndexable());
+    dto.setPublishedAt(src.getPublishedAt());
+    dto.setCreatedAt(src.getCreatedAt());
+    dto.setUpdatedAt(src.getUpdatedAt());
+    return dto;
+  }
+
+  private static class Entry {
+    final WikiEntryDTO dto;
+    final EntityVersion version;
+
+    Entry(WikiEntryDTO dto, EntityVersion version) {
+      this.dto = dto;
+      this.version = version;
+    }
+  }
+
+  // Immutable: maps are never modified after construction; idsDesc sorted by id descending.
+  private static class Snapshot {
+    static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), new long[0]);
+
+    final Map<Long, Entry> byId;
+    final Map<String, Entry> bySlug;
+    final long[] idsDesc;
+
+    Snapshot(Map<Long, Entry> byId, Map<String, Entry> bySlug, long[] idsDesc) {
+      this.byId = byId;
+      this.bySlug = bySlug;
+      this.idsDesc = idsDesc;
+    }
+
+    static Snapshot of(Map<Long, Entry> byId) {
+      Map<String, Entry> bySlug = new HashMap<>(byId.size() * 2);
+      for (Entry e : byId.values()) bySlug.put(e.dto.getSlug(), e);
+      long[] ids = byId.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+      long[] idsDesc = new long[ids.length];
+      for (int i = 0; i < ids.length; i++) idsDesc[i] = ids[ids.length - 1 - i];
+      return new Snapshot(byId, bySlug, idsDesc);
+    }
+
+    // Index of the first id < beforeId.
+    int indexBelow(long beforeId) {
+      int lo = 0;
+      int hi = idsDesc.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (idsDesc[mid] >= beforeId) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    Snapshot put(Entry entry) {
+      Map<Long, Entry> next = new HashMap<>(byId);
+      next.put(entry.dto.getEntryId(), entry);
+      return of(next);
+    }
+
+    Snapshot remove(long entryId) {
+      if (!byId.containsKey(entryId)) return this;
+      Map<Long, Entry> next = new HashMap<>(byId);
+      next.remove(entryId);
+      return of(next);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.chek.content.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// CJK runs are indexed as unigrams + bigrams; Latin letters/digits as lower-cased words.
+// Queries use bigrams (unigrams only for single-character runs), so multi-character CJK queries
+// behave close to the old substring LIKE match.
+public final class CjkTokenizer {
+  private CjkTokenizer() {}
+
+  public static Map<String, Integer> termFrequencies(String text, int weight) {
+    Map<String, Integer> out = new HashMap<>();
+    addTermFrequencies(out, text, weight);
+    return out;
+  }
+
+  public static void addTermFrequencies(Map<String, Integer> out, String text, int weight) {
+    if (text == null || text.isEmpty()) return;
+    tokenize(text, true, t -> out.merge(t, weight, Integer::sum));
+  }
+
+  public static List<String> queryTerms(String query) {
+    List<String> out = new ArrayList<>();
+    if (query == null || query.isBlank()) return out;
+    tokenize(query, false, t -> {
+      if (!out.contains(t)) out.add(t);
+    });
+    return out;
+  }
+
+  private interface Sink {
+    void accept(String term);
+  }
+
+  private static void tokenize(String text, boolean forIndex, Sink sink) {
+    int n = text.length();
+    int i = 0;
+    while (i < n) {
+      int cp = text.codePointAt(i);
+      if (isCjk(cp)) {
+        List<String> run = new ArrayList<>();
+        while (i < n) {
+          int c = text.codePointAt(i);
+          if (!isCjk(c)) break;
+          run.add(new String(Character.toChars(c)));
+          i += Character.charCount(c);
+        }
+        emitCjkRun(run, forIndex, sink);
+      } else if (Character.isLetterOrDigit(cp)) {
+        int start = i;
+        while (i < n) {
+          int c = text.codePointAt(i);
+          if (!Character.isLetterOrDigit(c) || isCjk(c)) break;
+          i += Character.charCount(c);
+        }
+        sink.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+      } else {
+        i += Character.charCount(cp);
+      }
+    }
+  }
+
+  private static void emitCjkRun(List<String> run, boolean forIndex, Sink sink) {
+    if (run.size() == 1 || forIndex) {
+      for (String c : run) sink.accept(c);
+    }
+    for (int k = 0; k + 1 < run.size(); k++) {
+      sink.accept(run.get(k) + run.get(k + 1));
+    }
+  }
+
+  private static boolean isCjk(int cp) {
+    Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+    return script == Character.UnicodeScript.HAN
+        || script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA
+        || script == Character.UnicodeScript.HANGUL;
+  }
+}
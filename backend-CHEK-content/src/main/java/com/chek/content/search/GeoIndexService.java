@@ -0,0 +1,312 @@
+package com.chek.content.search;
+
+import com.chek.content.model.post.PostDTO;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Uniform lat/lng grid of public+indexable posts for /v1/posts:nearby. A query visits the cells
+// overlapping the radius' bounding box and refines candidates with the haversine distance.
+// Rebuilt from MySQL at startup and periodically; updated by PostRepository on every write.
+@Service
+public class GeoIndexService {
+  private static final Logger log = LoggerFactory.getLogger(GeoIndexService.class);
+  private static final int LOAD_BATCH = 5000;
+  private static final double EARTH_RADIUS_KM = 6371.0088;
+  private static final double KM_PER_DEGREE_LAT = 111.32;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+  private final double cellDegrees;
+
+  private final Corpus posts = new Corpus();
+
+  public GeoIndexService(
+      JdbcTemplate jdbcTemplate,
+      @Value("${CHEK_GEO_INDEX_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_GEO_CELL_DEGREES:0.1}") double cellDegrees) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+    this.cellDegrees = Math.max(0.01, Math.min(cellDegrees, 5.0));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuild();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_GEO_INDEX_REBUILD_INTERVAL_MS:1800000}",
+      fixedDelayString = "${CHEK_GEO_INDEX_REBUILD_INTERVAL_MS:1800000}")
+  public void scheduledRebuild() {
+    rebuild();
+  }
+
+  public void rebuild() {
+    if (!enabled) return;
+    try {
+      long started = System.currentTimeMillis();
+      Grid next = posts.beginRebuild(cellDegrees);
+      long cursor = 0L;
+      while (true) {
+        List<double[]> rows =
+            jdbcTemplate.query(
+                "SELECT id, lat, lng FROM chek_content_post "
+                    + "WHERE is_public = TRUE AND is_indexable = TRUE AND lat IS NOT NULL AND lng IS NOT NULL "
+                    + "AND id > ? ORDER BY id ASC LIMIT ?",
+                (rs, rowNum) -> new double[] {rs.getLong("id"), rs.getDouble("lat"), rs.getDouble("lng")},
+                cursor,
+                LOAD_BATCH);
+        if (rows.isEmpty()) break;
+        for (double[] r : rows) next.put((long) r[0], r[1], r[2]);
+        cursor = (long) rows.get(rows.size() - 1)[0];
+      }
+      posts.finishRebuild(next);
+      log.info("geo index: {} posts indexed in {} ms", next.size(), System.currentTimeMillis() - started);
+    } catch (Exception e) {
+      posts.abortRebuild();
+      log.warn("geo index rebuild failed", e);
+    }
+  }
+
+  public boolean isReady() {
+    return enabled && posts.ready;
+  }
+
+  public void indexPost(PostDTO dto) {
+    if (!enabled || dto == null) return;
+    if (!(dto.isPublic() && dto.isIndexable()) || !isValid(dto.getLat(), dto.getLng())) {
+      posts.remove(dto.getPostId());
+      return;
+    }
+    posts.put(dto.getPostId(), dto.getLat(), dto.getLng());
+  }
+
+  public void removePost(long postId) {
+    if (!enabled) return;
+    posts.remove(postId);
+  }
+
+  // Posts within radiusKm ordered by (distance, id), strictly after the (afterKm, afterId) keyset
+  // position when afterId > 0.
+  public List<Hit> nearby(double lat, double lng, double radiusKm, double afterKm, long afterId, int limit) {
+    List<Hit> hits = posts.current.get().within(lat, lng, radiusKm);
+    return page(hits, afterKm, afterId, limit);
+  }
+
+  public static List<Hit> page(List<Hit> hits, double afterKm, long afterId, int limit) {
+    hits.sort(
+        (a, b) -> {
+          int c = Double.compare(a.distanceKm, b.distanceKm);
+          return c != 0 ? c : Long.compare(a.postId, b.postId);
+        });
+    List<Hit> out = new ArrayList<>(Math.min(hits.size(), limit));
+    for (Hit h : hits) {
+      if (afterId > 0) {
+        int c = Double.compare(h.distanceKm, afterKm);
+        if (c < 0 || (c == 0 && h.postId <= afterId)) continue;
+      }
+      out.add(h);
+      if (out.size() >= limit) break;
+    }
+    return out;
+  }
+
+  public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLng = Math.toRadians(lng2 - lng1);
+    double a =
+        Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+  }
+
+  // Degrees of latitude / longitude spanned by radiusKm around lat, used for bounding boxes.
+  public static double latSpan(double radiusKm) {
+    return radiusKm / KM_PER_DEGREE_LAT;
+  }
+
+  public static double lngSpan(double lat, double radiusKm) {
+    double cos = Math.cos(Math.toRadians(lat));
+    if (cos < 1e-6) return 360.0;
+    return Math.min(360.0, radiusKm / (KM_PER_DEGREE_LAT * cos));
+  }
+
+  private static boolean isValid(Double lat, Double lng) {
+    return lat != null && lng != null && lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
+  }
+
+  public static class Hit {
+    public final long postId;
+    public final double distanceKm;
+
+    public Hit(long postId, double distanceKm) {
+      this.postId = postId;
+      this.distanceKm = distanceKm;
+    }
+  }
+
+  private static class Grid {
+    private final double cellDegrees;
+    private final int lngCells;
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, double[]> points = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    Grid(double cellDegrees) {
+      this.cellDegrees = cellDegrees;
+      this.lngCells = (int) Math.ceil(360.0 / cellDegrees);
+    }
+
+    int size() {
+      lock.readLock().lock();
+      try {
+        return points.size();
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    void put(long id, double lat, double lng) {
+      lock.writeLock().lock();
+      try {
+        removeLocked(id);
+        points.put(id, new double[] {lat, lng});
+        cells.computeIfAbsent(cellKey(latCell(lat), lngCell(lng)), k -> new HashSet<>()).add(id);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void remove(long id) {
+      lock.writeLock().lock();
+      try {
+        removeLocked(id);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    List<Hit> within(double lat, double lng, double radiusKm) {
+      double dLat = latSpan(radiusKm);
+      // Widest longitude span is at the box edge furthest from the equator.
+      double dLng = lngSpan(Math.min(90.0, Math.abs(lat) + dLat), radiusKm);
+      int latFrom = latCell(Math.max(-90.0, lat - dLat));
+      int latTo = latCell(Math.min(90.0, lat + dLat));
+      int lngFrom = (int) Math.floor((lng - dLng + 180.0) / cellDegrees);
+      int lngTo = (int) Math.floor((lng + dLng + 180.0) / cellDegrees);
+      if (lngTo - lngFrom + 1 >= lngCells) {
+        lngFrom = 0;
+        lngTo = lngCells - 1;
+      }
+
+      List<Hit> out = new ArrayList<>();
+      lock.readLock().lock();
+      try {
+        for (int la = latFrom; la <= latTo; la++) {
+          for (int lo = lngFrom; lo <= lngTo; lo++) {
+            // Longitude cells wrap around the antimeridian.
+            Set<Long> cell = cells.get(cellKey(la, Math.floorMod(lo, lngCells)));
+            if (cell == null) continue;
+            for (Long id : cell) {
+              double[] p = points.get(id);
+              double d = distanceKm(lat, lng, p[0], p[1]);
+              if (d <= radiusKm) out.add(new Hit(id, d));
+            }
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      return out;
+    }
+
+    private void removeLocked(long id) {
+      double[] p = points.remove(id);
+      if (p == null) return;
+      long key = cellKey(latCell(p[0]), lngCell(p[1]));
+      Set<Long> cell = cells.get(key);
+      if (cell == null) return;
+      cell.remove(id);
+      if (cell.isEmpty()) cells.remove(key);
+    }
+
+    private int latCell(double lat) {
+      return (int) Math.floor((lat + 90.0) / cellDegrees);
+    }
+
+    private int lngCell(double lng) {
+      return Math.floorMod((int) Math.floor((lng + 180.0) / cellDegrees), lngCells);
+    }
+
+    private static long cellKey(int latCell, int lngCell) {
+      return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+  }
+
+  // Writes that land while a rebuild is loading go to both grids and are replayed onto the new one
+  // before it is swapped in.
+  private static class Corpus {
+    private static final double[] REMOVED = new double[0];
+
+    final AtomicReference<Grid> current = new AtomicReference<>(new Grid(1.0));
+    volatile boolean ready;
+    private Grid building;
+    private Map<Long, double[]> touched;
+
+    synchronized Grid beginRebuild(double cellDegrees) {
+      building = new Grid(cellDegrees);
+      touched = new HashMap<>();
+      return building;
+    }
+
+    synchronized void finishRebuild(Grid next) {
+      for (Map.Entry<Long, double[]> e : touched.entrySet()) {
+        if (e.getValue() == REMOVED) {
+          next.remove(e.getKey());
+        } else {
+          next.put(e.getKey(), e.getValue()[0], e.getValue()[1]);
+        }
+      }
+      current.set(next);
+      building = null;
+      touched = null;
+      ready = true;
+    }
+
+    synchronized void abortRebuild() {
+      building = null;
+      touched = null;
+    }
+
+    synchronized void put(long id, double lat, double lng) {
+      current.get().put(id, lat, lng);
+      if (building != null) {
+        building.put(id, lat, lng);
+        touched.put(id, new double[] {lat, lng});
+      }
+    }
+
+    synchronized void remove(long id) {
+      current.get().remove(id);
+      if (building != null) {
+        building.remove(id);
+        touched.put(id, REMOVED);
+      }
+    }
+  }
+}
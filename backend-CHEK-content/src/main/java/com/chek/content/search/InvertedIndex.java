@@ -0,0 +1,134 @@
+package com.chek.content.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory term -> (doc id -> tf) postings with BM25 scoring. Safe for concurrent use.
+public class InvertedIndex {
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+  private final Map<Long, Map<String, Integer>> docTerms = new HashMap<>();
+  private final Map<Long, Integer> docLengths = new HashMap<>();
+  private long totalLength;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public void put(long docId, Map<String, Integer> termFrequencies) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(docId);
+      if (termFrequencies == null || termFrequencies.isEmpty()) return;
+      int length = 0;
+      for (Map.Entry<String, Integer> e : termFrequencies.entrySet()) {
+        postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(docId, e.getValue());
+        length += e.getValue();
+      }
+      docTerms.put(docId, termFrequencies);
+      docLengths.put(docId, length);
+      totalLength += length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long docId) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(docId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return docLengths.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Top ids by BM25 score (desc, ties by id desc), at most limit. Documents must match at least
+  // minShouldMatch of the query terms and pass filter (null accepts all) before the cut, so a filter
+  // never drops matches that a larger limit would have kept.
+  public List<Long> search(List<String> terms, double minShouldMatch, LongPredicate filter, int limit) {
+    if (terms == null || terms.isEmpty() || limit <= 0) return List.of();
+    List<Map.Entry<Long, double[]>> hits = matches(terms, minShouldMatch, filter, 0L);
+    hits.sort(
+        (a, b) -> {
+          int c = Double.compare(b.getValue()[0], a.getValue()[0]);
+          return c != 0 ? c : Long.compare(b.getKey(), a.getKey());
+        });
+    List<Long> out = new ArrayList<>(Math.min(hits.size(), limit));
+    for (int i = 0; i < hits.size() && i < limit; i++) out.add(hits.get(i).getKey());
+    return out;
+  }
+
+  // The highest matching ids below beforeId (if > 0), newest first, at most limit; score plays no
+  // part, so consecutive calls walk every match exactly once.
+  public List<Long> searchBefore(
+      List<String> terms, double minShouldMatch, LongPredicate filter, long beforeId, int limit) {
+    if (terms == null || terms.isEmpty() || limit <= 0) return List.of();
+    List<Long> ids = new ArrayList<>();
+    for (Map.Entry<Long, double[]> e : matches(terms, minShouldMatch, filter, beforeId)) ids.add(e.getKey());
+    ids.sort(Comparator.reverseOrder());
+    return ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids;
+  }
+
+  // Matching documents with [score, matched terms].
+  private List<Map.Entry<Long, double[]>> matches(
+      List<String> terms, double minShouldMatch, LongPredicate filter, long beforeId) {
+    int required = Math.max(1, (int) Math.ceil(terms.size() * minShouldMatch));
+    Map<Long, double[]> acc = new HashMap<>();
+    lock.readLock().lock();
+    try {
+      int docCount = docLengths.size();
+      if (docCount == 0) return new ArrayList<>();
+      double avgLength = (double) totalLength / docCount;
+      for (String term : terms) {
+        Map<Long, Integer> p = postings.get(term);
+        if (p == null) continue;
+        double idf = Math.log(1.0 + (docCount - p.size() + 0.5) / (p.size() + 0.5));
+        for (Map.Entry<Long, Integer> e : p.entrySet()) {
+          long id = e.getKey();
+          if (beforeId > 0 && id >= beforeId) continue;
+          if (filter != null && !filter.test(id)) continue;
+          double tf = e.getValue();
+          double norm = K1 * (1 - B + B * docLengths.get(id) / avgLength);
+          double[] s = acc.computeIfAbsent(id, k -> new double[2]);
+          s[0] += idf * (tf * (K1 + 1)) / (tf + norm);
+          s[1] += 1;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    List<Map.Entry<Long, double[]>> hits = new ArrayList<>();
+    for (Map.Entry<Long, double[]> e : acc.entrySet()) {
+      if (e.getValue()[1] >= required) hits.add(e);
+    }
+    return hits;
+  }
+
+  private void removeLocked(long docId) {
+    Map<String, Integer> terms = docTerms.remove(docId);
+    if (terms == null) return;
+    for (String term : terms.keySet()) {
+      Map<Long, Integer> p = postings.get(term);
+      if (p == null) continue;
+      p.remove(docId);
+      if (p.isEmpty()) postings.remove(term);
+    }
+    Integer length = docLengths.remove(docId);
+    if (length != null) totalLength -= length;
+  }
+}
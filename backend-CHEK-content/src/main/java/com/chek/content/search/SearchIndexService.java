@@ -0,0 +1,272 @@
+package com.chek.content.search;
+
+import com.chek.content.model.post.PostDTO;
+import com.chek.content.model.wiki.WikiEntryDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Serves the `query` parameter of /v1/posts and /v1/wiki/entries from in-memory BM25 indexes.
+// Indexes are rebuilt from MySQL at startup (and periodically, to pick up writes made by other
+// instances) and updated incrementally by the repositories on every write.
+//
+// A document must contain CHEK_SEARCH_MIN_SHOULD_MATCH of the query terms. The default 1.0 (every
+// term) keeps results at least as narrow as the LIKE fallback; lower it to trade precision for recall.
+// Callers pass their author/tag filters in as a predicate so they apply before the top-k cut.
+// Relevance pages reach at most CHEK_SEARCH_MAX_CANDIDATES deep; past that the result says it was
+// truncated rather than just ending.
+@Service
+public class SearchIndexService {
+  private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+  private static final int LOAD_BATCH = 2000;
+
+  private static final int POST_TITLE_WEIGHT = 2;
+  private static final int WIKI_TITLE_WEIGHT = 3;
+  private static final int WIKI_SUMMARY_WEIGHT = 2;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+  private final double minShouldMatch;
+  private final int maxCandidates;
+
+  private final Corpus posts = new Corpus();
+  private final Corpus wiki = new Corpus();
+
+  public SearchIndexService(
+      JdbcTemplate jdbcTemplate,
+      @Value("${CHEK_SEARCH_INDEX_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_SEARCH_MIN_SHOULD_MATCH:1.0}") double minShouldMatch,
+      @Value("${CHEK_SEARCH_MAX_CANDIDATES:10000}") int maxCandidates) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+    this.minShouldMatch = Math.max(0.0, Math.min(1.0, minShouldMatch));
+    this.maxCandidates = Math.max(1, maxCandidates);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuildAll();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_SEARCH_REBUILD_INTERVAL_MS:1800000}",
+      fixedDelayString = "${CHEK_SEARCH_REBUILD_INTERVAL_MS:1800000}")
+  public void scheduledRebuild() {
+    rebuildAll();
+  }
+
+  public void rebuildAll() {
+    if (!enabled) return;
+    try {
+      rebuildPosts();
+      rebuildWiki();
+    } catch (Exception e) {
+      log.warn("search index rebuild failed", e);
+    }
+  }
+
+  public boolean isPostIndexReady() {
+    return enabled && posts.ready;
+  }
+
+  public boolean isWikiIndexReady() {
+    return enabled && wiki.ready;
+  }
+
+  // Post ids by relevance, enough of the top for a page of n starting at rank offset.
+  public Ranked rankPosts(String query, LongPredicate filter, int offset, int n) {
+    return rank(posts, query, filter, offset, n);
+  }
+
+  public Ranked rankWiki(String query, LongPredicate filter, int offset, int n) {
+    return rank(wiki, query, filter, offset, n);
+  }
+
+  // Matching post ids below beforeId, newest first; for numeric cursors on a search.
+  public List<Long> searchPostsBefore(String query, LongPredicate filter, long beforeId, int limit) {
+    return posts.current.get().searchBefore(CjkTokenizer.queryTerms(query), minShouldMatch, filter, beforeId, limit);
+  }
+
+  public List<Long> searchWikiBefore(String query, LongPredicate filter, long beforeId, int limit) {
+    return wiki.current.get().searchBefore(CjkTokenizer.queryTerms(query), minShouldMatch, filter, beforeId, limit);
+  }
+
+  private Ranked rank(Corpus corpus, String query, LongPredicate filter, int offset, int n) {
+    // Twice the page plus one, so a few ids gone from MySQL do not end the page early.
+    long want = (long) offset + 2L * n + 1;
+    int limit = (int) Math.min(want, maxCandidates + 1L);
+    List<Long> ids = corpus.current.get().search(CjkTokenizer.queryTerms(query), minShouldMatch, filter, limit);
+    if (ids.size() > maxCandidates) return new Ranked(ids.subList(0, maxCandidates), true);
+    return new Ranked(ids, false);
+  }
+
+  public void indexPost(PostDTO dto) {
+    if (!enabled || dto == null) return;
+    if (!(dto.isPublic() && dto.isIndexable())) {
+      posts.remove(dto.getPostId());
+      return;
+    }
+    posts.put(dto.getPostId(), postTerms(dto.getTitle(), dto.getBody()));
+  }
+
+  public void removePost(long postId) {
+    if (!enabled) return;
+    posts.remove(postId);
+  }
+
+  public void indexWikiEntry(WikiEntryDTO dto) {
+    if (!enabled || dto == null) return;
+    if (!(dto.isPublic() && dto.isIndexable())) {
+      wiki.remove(dto.getEntryId());
+      return;
+    }
+    wiki.put(dto.getEntryId(), wikiTerms(dto.getTitle(), dto.getSummary(), dto.getBody()));
+  }
+
+  private void rebuildPosts() {
+    long started = System.currentTimeMillis();
+    InvertedIndex next = posts.beginRebuild();
+    try {
+      long cursor = 0L;
+      while (true) {
+        List<Object[]> rows =
+            jdbcTemplate.query(
+                "SELECT id, title, body_md FROM chek_content_post "
+                    + "WHERE is_public = TRUE AND is_indexable = TRUE AND id > ? ORDER BY id ASC LIMIT ?",
+                (rs, rowNum) ->
+                    new Object[] {rs.getLong("id"), rs.getString("title"), rs.getString("body_md")},
+                cursor,
+                LOAD_BATCH);
+        if (rows.isEmpty()) break;
+        List<Map<String, Integer>> terms =
+            rows.parallelStream().map(r -> postTerms((String) r[1], (String) r[2])).toList();
+        for (int i = 0; i < rows.size(); i++) next.put((Long) rows.get(i)[0], terms.get(i));
+        cursor = (Long) rows.get(rows.size() - 1)[0];
+      }
+      posts.finishRebuild(next);
+    } finally {
+      posts.abortRebuild(next);
+    }
+    log.info("search index: {} posts indexed in {} ms", next.size(), System.currentTimeMillis() - started);
+  }
+
+  private void rebuildWiki() {
+    long started = System.currentTimeMillis();
+    InvertedIndex next = wiki.beginRebuild();
+    try {
+      long cursor = 0L;
+      while (true) {
+        List<Object[]> rows =
+            jdbcTemplate.query(
+                "SELECT id, title, summary, body_md FROM chek_content_wiki_entry "
+                    + "WHERE is_public = TRUE AND is_indexable = TRUE AND id > ? ORDER BY id ASC LIMIT ?",
+                (rs, rowNum) ->
+                    new Object[] {
+                      rs.getLong("id"), rs.getString("title"), rs.getString("summary"), rs.getString("body_md")
+                    },
+                cursor,
+                LOAD_BATCH);
+        if (rows.isEmpty()) break;
+        List<Map<String, Integer>> terms =
+            rows.parallelStream()
+                .map(r -> wikiTerms((String) r[1], (String) r[2], (String) r[3]))
+                .toList();
+        for (int i = 0; i < rows.size(); i++) next.put((Long) rows.get(i)[0], terms.get(i));
+        cursor = (Long) rows.get(rows.size() - 1)[0];
+      }
+      wiki.finishRebuild(next);
+    } finally {
+      wiki.abortRebuild(next);
+    }
+    log.info("search index: {} wiki entries indexed in {} ms", next.size(), System.currentTimeMillis() - started);
+  }
+
+  // truncated: there are matches ranked below the deepest one served (CHEK_SEARCH_MAX_CANDIDATES).
+  public static class Ranked {
+    public final List<Long> ids;
+    public final boolean truncated;
+
+    Ranked(List<Long> ids, boolean truncated) {
+      this.ids = ids;
+      this.truncated = truncated;
+    }
+  }
+
+  private static Map<String, Integer> postTerms(String title, String body) {
+    Map<String, Integer> tf = CjkTokenizer.termFrequencies(title, POST_TITLE_WEIGHT);
+    CjkTokenizer.addTermFrequencies(tf, body, 1);
+    return tf;
+  }
+
+  private static Map<String, Integer> wikiTerms(String title, String summary, String body) {
+    Map<String, Integer> tf = CjkTokenizer.termFrequencies(title, WIKI_TITLE_WEIGHT);
+    CjkTokenizer.addTermFrequencies(tf, summary, WIKI_SUMMARY_WEIGHT);
+    CjkTokenizer.addTermFrequencies(tf, body, 1);
+    return tf;
+  }
+
+  // Writes that land while a rebuild is loading go to both indexes and are replayed onto the new
+  // one before it is swapped in, so a rebuild never resurrects stale rows.
+  private static class Corpus {
+    private static final Map<String, Integer> REMOVED = Map.of();
+
+    final AtomicReference<InvertedIndex> current = new AtomicReference<>(new InvertedIndex());
+    volatile boolean ready;
+    private InvertedIndex building;
+    private Map<Long, Map<String, Integer>> touched;
+
+    synchronized InvertedIndex beginRebuild() {
+      building = new InvertedIndex();
+      touched = new ConcurrentHashMap<>();
+      return building;
+    }
+
+    synchronized void finishRebuild(InvertedIndex next) {
+      for (Map.Entry<Long, Map<String, Integer>> e : new ArrayList<>(touched.entrySet())) {
+        if (e.getValue() == REMOVED) {
+          next.remove(e.getKey());
+        } else {
+          next.put(e.getKey(), e.getValue());
+        }
+      }
+      current.set(next);
+      building = null;
+      touched = null;
+      ready = true;
+    }
+
+    // No-op after finishRebuild; otherwise drops the half-built index so writes stop feeding it.
+    synchronized void abortRebuild(InvertedIndex next) {
+      if (building != next) return;
+      building = null;
+      touched = null;
+    }
+
+    synchronized void put(long id, Map<String, Integer> tf) {
+      current.get().put(id, tf);
+      if (building != null) {
+        building.put(id, tf);
+        touched.put(id, tf);
+      }
+    }
+
+    synchronized void remove(long id) {
+      current.get().remove(id);
+      if (building != null) {
+        building.remove(id);
+        touched.put(id, REMOVED);
+      }
+    }
+  }
+}
@@ -0,0 +1,340 @@
+package com.chek.content.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Tag -> id posting lists as Roaring bitmaps for posts and wiki entries, plus a bitmap of the
+// public+indexable ids and, for posts, author -> id bitmaps. Supports AND (tagsMode=all) / OR
+// (tagsMode=any), descending keyset walks and filter predicates for SearchIndexService.
+// Tag and author names are matched case-insensitively, like the utf8mb4_unicode_ci columns they come
+// from.
+@Service
+public class TagIndexService {
+  private static final Logger log = LoggerFactory.getLogger(TagIndexService.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+
+  private final Corpus posts = new Corpus();
+  private final Corpus wiki = new Corpus();
+
+  public TagIndexService(
+      JdbcTemplate jdbcTemplate, @Value("${CHEK_TAG_INDEX_ENABLED:true}") boolean enabled) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuildAll();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_TAG_INDEX_REBUILD_INTERVAL_MS:1800000}",
+      fixedDelayString = "${CHEK_TAG_INDEX_REBUILD_INTERVAL_MS:1800000}")
+  public void scheduledRebuild() {
+    rebuildAll();
+  }
+
+  public void rebuildAll() {
+    if (!enabled) return;
+    try {
+      rebuild(
+          posts,
+          "SELECT id, author_user_one_id AS author FROM chek_content_post WHERE is_public = TRUE AND is_indexable = TRUE",
+          "SELECT pt.post_id AS doc_id, t.name FROM chek_content_post_tag pt "
+              + "JOIN chek_content_tag t ON t.id = pt.tag_id");
+      rebuild(
+          wiki,
+          "SELECT id, NULL AS author FROM chek_content_wiki_entry WHERE is_public = TRUE AND is_indexable = TRUE",
+          "SELECT et.entry_id AS doc_id, t.name FROM chek_content_wiki_entry_tag et "
+              + "JOIN chek_content_tag t ON t.id = et.tag_id");
+    } catch (Exception e) {
+      log.warn("tag index rebuild failed", e);
+    }
+  }
+
+  public boolean isPostIndexReady() {
+    return enabled && posts.isReady();
+  }
+
+  public boolean isWikiIndexReady() {
+    return enabled && wiki.isReady();
+  }
+
+  public void setPostTags(long postId, List<String> tagNames) {
+    if (enabled) posts.apply(c -> c.setTags(postId, tagNames));
+  }
+
+  public void setPostVisible(long postId, boolean visible) {
+    if (enabled) posts.apply(c -> c.setVisible(postId, visible));
+  }
+
+  public void setPostAuthor(long postId, String authorUserOneId) {
+    if (enabled) posts.apply(c -> c.setAuthor(postId, authorUserOneId));
+  }
+
+  public void setEntryTags(long entryId, List<String> tagNames) {
+    if (enabled) wiki.apply(c -> c.setTags(entryId, tagNames));
+  }
+
+  public void setEntryVisible(long entryId, boolean visible) {
+    if (enabled) wiki.apply(c -> c.setVisible(entryId, visible));
+  }
+
+  // Visible post ids carrying all/any of the tags, descending, strictly below beforeId (if > 0).
+  public List<Long> postIdsBefore(List<String> tagNames, boolean matchAll, long beforeId, int limit) {
+    return posts.idsBefore(tagNames, matchAll, beforeId, limit);
+  }
+
+  public List<Long> entryIdsBefore(List<String> tagNames, boolean matchAll, long beforeId, int limit) {
+    return wiki.idsBefore(tagNames, matchAll, beforeId, limit);
+  }
+
+  // Visible posts carrying all/any of the tags (none: no tag condition) and written by the author
+  // (null/blank: any), as of now. Null when there is nothing to filter on.
+  public LongPredicate postFilter(List<String> tagNames, boolean matchAll, String authorUserOneId) {
+    boolean hasAuthor = authorUserOneId != null && !authorUserOneId.isBlank();
+    if (tagNames.isEmpty() && !hasAuthor) return null;
+    return posts.filter(tagNames, matchAll, hasAuthor ? authorUserOneId : null);
+  }
+
+  public LongPredicate entryFilter(List<String> tagNames, boolean matchAll) {
+    if (tagNames.isEmpty()) return null;
+    return wiki.filter(tagNames, matchAll, null);
+  }
+
+  private void rebuild(Corpus corpus, String visibleSql, String tagsSql) {
+    long started = System.currentTimeMillis();
+    Bitmaps next = new Bitmaps();
+    corpus.beginRebuild();
+    try {
+      jdbcTemplate.query(visibleSql, rs -> {
+        next.setVisible(rs.getLong("id"), true);
+        String author = rs.getString("author");
+        if (author != null) next.setAuthor(rs.getLong("id"), author);
+      });
+      Map<Long, List<String>> tagsByDoc = new HashMap<>();
+      jdbcTemplate.query(tagsSql, rs -> {
+        tagsByDoc.computeIfAbsent(rs.getLong("doc_id"), k -> new ArrayList<>()).add(rs.getString("name"));
+      });
+      for (Map.Entry<Long, List<String>> e : tagsByDoc.entrySet()) next.setTags(e.getKey(), e.getValue());
+      next.optimize();
+      corpus.finishRebuild(next);
+    } finally {
+      // No-op after finishRebuild; after a failure it stops queueing writes for a swap that never comes.
+      corpus.abortRebuild();
+    }
+    log.info(
+        "tag index: {} docs, {} tags loaded in {} ms",
+        next.visible.getCardinality(),
+        next.byTag.size(),
+        System.currentTimeMillis() - started);
+  }
+
+  private static String key(String name) {
+    return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static int toInt(long id) {
+    if (id < 0 || id > Integer.MAX_VALUE) throw new IllegalArgumentException("id out of bitmap range: " + id);
+    return (int) id;
+  }
+
+  // Not thread-safe; Corpus guards access.
+  private static class Bitmaps {
+    final Map<String, RoaringBitmap> byTag = new HashMap<>();
+    final Map<Integer, List<String>> docTags = new HashMap<>();
+    final Map<String, RoaringBitmap> byAuthor = new HashMap<>();
+    final Map<Integer, String> docAuthor = new HashMap<>();
+    final RoaringBitmap visible = new RoaringBitmap();
+
+    void setVisible(long id, boolean v) {
+      if (v) {
+        visible.add(toInt(id));
+      } else {
+        visible.remove(toInt(id));
+      }
+    }
+
+    void setTags(long id, Collection<String> tagNames) {
+      int doc = toInt(id);
+      List<String> old = docTags.remove(doc);
+      if (old != null) {
+        for (String k : old) {
+          RoaringBitmap bm = byTag.get(k);
+          if (bm == null) continue;
+          bm.remove(doc);
+          if (bm.isEmpty()) byTag.remove(k);
+        }
+      }
+      if (tagNames == null || tagNames.isEmpty()) return;
+      List<String> keys = new ArrayList<>();
+      for (String name : tagNames) {
+        String k = key(name);
+        if (k.isEmpty() || keys.contains(k)) continue;
+        keys.add(k);
+        byTag.computeIfAbsent(k, x -> new RoaringBitmap()).add(doc);
+      }
+      docTags.put(doc, keys);
+    }
+
+    void setAuthor(long id, String author) {
+      int doc = toInt(id);
+      String k = key(author);
+      String old = docAuthor.remove(doc);
+      if (old != null) {
+        RoaringBitmap bm = byAuthor.get(old);
+        if (bm != null) {
+          bm.remove(doc);
+          if (bm.isEmpty()) byAuthor.remove(old);
+        }
+      }
+      if (k.isEmpty()) return;
+      byAuthor.computeIfAbsent(k, x -> new RoaringBitmap()).add(doc);
+      docAuthor.put(doc, k);
+    }
+
+    // Visible ids matching the tags (if any) and the author (if non-null); a new bitmap.
+    RoaringBitmap select(List<String> tagNames, boolean matchAll, String author) {
+      RoaringBitmap out = tagNames.isEmpty() ? visible.clone() : select(tagNames, matchAll);
+      if (author != null) {
+        RoaringBitmap bm = byAuthor.get(key(author));
+        if (bm == null) return new RoaringBitmap();
+        out.and(bm);
+      }
+      return out;
+    }
+
+    RoaringBitmap select(List<String> tagNames, boolean matchAll) {
+      List<RoaringBitmap> parts = new ArrayList<>();
+      for (String name : tagNames) {
+        RoaringBitmap bm = byTag.get(key(name));
+        if (bm == null) {
+          if (matchAll) return new RoaringBitmap();
+          continue;
+        }
+        parts.add(bm);
+      }
+      if (parts.isEmpty()) return new RoaringBitmap();
+      RoaringBitmap[] arr = parts.toArray(new RoaringBitmap[0]);
+      RoaringBitmap tagged = matchAll ? FastAggregation.and(arr) : FastAggregation.or(arr);
+      tagged.and(visible);
+      return tagged;
+    }
+
+    void optimize() {
+      visible.runOptimize();
+      for (RoaringBitmap bm : byTag.values()) bm.runOptimize();
+      for (RoaringBitmap bm : byAuthor.values()) bm.runOptimize();
+    }
+  }
+
+  // Mutations during a rebuild are applied to the live bitmaps and queued for replay on the new
+  // ones, so the swap never loses a concurrent write. Lookups only read the bitmaps, so they share
+  // the read lock and run concurrently; writes and the swap take the write lock.
+  private static class Corpus {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Bitmaps current = new Bitmaps();
+    private volatile boolean ready;
+    private List<Consumer<Bitmaps>> pending;
+
+    boolean isReady() {
+      return ready;
+    }
+
+    void beginRebuild() {
+      lock.writeLock().lock();
+      try {
+        pending = new ArrayList<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void abortRebuild() {
+      lock.writeLock().lock();
+      try {
+        pending = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void finishRebuild(Bitmaps next) {
+      lock.writeLock().lock();
+      try {
+        for (Consumer<Bitmaps> op : pending) op.accept(next);
+        current = next;
+        pending = null;
+        ready = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void apply(Consumer<Bitmaps> op) {
+      lock.writeLock().lock();
+      try {
+        op.accept(current);
+        if (pending != null) pending.add(op);
+      } catch (IllegalArgumentException e) {
+        // Ids beyond the int range cannot be indexed; callers fall back to SQL.
+        ready = false;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    List<Long> idsBefore(List<String> tagNames, boolean matchAll, long beforeId, int limit) {
+      RoaringBitmap bm;
+      lock.readLock().lock();
+      try {
+        bm = current.select(tagNames, matchAll);
+      } finally {
+        lock.readLock().unlock();
+      }
+      List<Long> out = new ArrayList<>(Math.min(limit, 256));
+      long next =
+          beforeId > 0
+              ? bm.previousValue((int) Math.min(Integer.MAX_VALUE, beforeId - 1))
+              : bm.previousValue(Integer.MAX_VALUE);
+      while (next >= 0 && out.size() < limit) {
+        out.add(next);
+        if (next == 0) break;
+        next = bm.previousValue((int) next - 1);
+      }
+      return out;
+    }
+
+    // The predicate reads a private bitmap, so it stays valid while the corpus keeps changing.
+    LongPredicate filter(List<String> tagNames, boolean matchAll, String author) {
+      RoaringBitmap bm;
+      lock.readLock().lock();
+      try {
+        bm = current.select(tagNames, matchAll, author);
+      } finally {
+        lock.readLock().unlock();
+      }
+      return id -> id >= 0 && id <= Integer.MAX_VALUE && bm.contains((int) id);
+    }
+  }
+}
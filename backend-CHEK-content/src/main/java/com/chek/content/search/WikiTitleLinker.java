@@ -0,0 +1,305 @@
+package com.chek.content.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Aho-Corasick automaton over the titles of public+indexable wiki entries, used to find wiki
+// mentions in post bodies in one pass regardless of how many titles there are. Matching is
+// case-insensitive; a title starting/ending with an ASCII letter or digit must sit on a word
+// boundary there (so "cat" does not link inside "category"), CJK titles match anywhere.
+// Overlapping mentions resolve leftmost-longest, and each entry is linked at its first mention only.
+//
+// Rebuilt from MySQL at startup and periodically; WikiRepository swaps in a new automaton after every
+// committed write.
+@Service
+public class WikiTitleLinker {
+  private static final Logger log = LoggerFactory.getLogger(WikiTitleLinker.class);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final boolean enabled;
+  private final int minTitleLength;
+  private final int maxLinks;
+
+  private final AtomicReference<Titles> current = new AtomicReference<>(Titles.EMPTY);
+  private List<UnaryOperator<Titles>> pending;
+
+  public WikiTitleLinker(
+      JdbcTemplate jdbcTemplate,
+      @Value("${CHEK_WIKI_LINKER_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_WIKI_LINKER_MIN_TITLE_LENGTH:2}") int minTitleLength,
+      @Value("${CHEK_WIKI_LINKER_MAX_LINKS:50}") int maxLinks) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.enabled = enabled;
+    this.minTitleLength = Math.max(1, minTitleLength);
+    this.maxLinks = Math.max(1, maxLinks);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    rebuild();
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_WIKI_LINKER_REBUILD_INTERVAL_MS:1800000}",
+      fixedDelayString = "${CHEK_WIKI_LINKER_REBUILD_INTERVAL_MS:1800000}")
+  public void scheduledRebuild() {
+    rebuild();
+  }
+
+  public void rebuild() {
+    if (!enabled) return;
+    long started = System.currentTimeMillis();
+    synchronized (this) {
+      pending = new ArrayList<>();
+    }
+    try {
+      Map<Long, String> titles = new HashMap<>();
+      jdbcTemplate.query(
+          "SELECT id, title FROM chek_content_wiki_entry WHERE is_public = TRUE AND is_indexable = TRUE",
+          rs -> {
+            titles.put(rs.getLong("id"), rs.getString("title"));
+          });
+      Titles next = new Titles(titles, minTitleLength);
+      synchronized (this) {
+        for (UnaryOperator<Titles> op : pending) next = op.apply(next);
+        current.set(next);
+      }
+      log.info(
+          "wiki linker: {} titles, {} states built in {} ms",
+          next.titles.size(),
+          next.automaton.size(),
+          System.currentTimeMillis() - started);
+    } catch (Exception e) {
+      log.warn("wiki linker rebuild failed", e);
+    } finally {
+      synchronized (this) {
+        pending = null;
+      }
+    }
+  }
+
+  // Applied after the surrounding transaction commits, so a rolled-back write never links.
+  public void putEntry(long entryId, String title, boolean visible) {
+    if (!enabled) return;
+    int min = minTitleLength;
+    Runnable r = () -> apply(t -> t.with(entryId, visible ? title : null, min));
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              r.run();
+            }
+          });
+    } else {
+      r.run();
+    }
+  }
+
+  // Mentions in text, ordered by start offset (UTF-16 units, as in String.substring).
+  public List<Link> scan(String text) {
+    if (!enabled || text == null || text.isEmpty()) return List.of();
+    return current.get().automaton.scan(text, maxLinks);
+  }
+
+  private synchronized void apply(UnaryOperator<Titles> op) {
+    current.set(op.apply(current.get()));
+    if (pending != null) pending.add(op);
+  }
+
+  public static class Link {
+    public final long entryId;
+    public final int start;
+    public final int length;
+
+    public Link(long entryId, int start, int length) {
+      this.entryId = entryId;
+      this.start = start;
+      this.length = length;
+    }
+  }
+
+  // Immutable: the title map and the automaton built from it.
+  private static class Titles {
+    static final Titles EMPTY = new Titles(Map.of(), 1);
+
+    final Map<Long, String> titles;
+    final Automaton automaton;
+
+    Titles(Map<Long, String> titles, int minTitleLength) {
+      this.titles = titles;
+      this.automaton = Automaton.build(titles, minTitleLength);
+    }
+
+    Titles with(long entryId, String title, int minTitleLength) {
+      if (title == null ? !titles.containsKey(entryId) : title.equals(titles.get(entryId))) return this;
+      Map<Long, String> next = new HashMap<>(titles);
+      if (title == null) {
+        next.remove(entryId);
+      } else {
+        next.put(entryId, title);
+      }
+      return new Titles(next, minTitleLength);
+    }
+  }
+
+  private static class Automaton {
+    // Transitions keyed by (state << 16 | char); fail and dict (next state on the fail chain with
+    // an output) links per state; out = entry id of the title ending at the state, or -1.
+    private final Map<Long, Integer> next;
+    private final int[] fail;
+    private final int[] dict;
+    private final long[] out;
+    private final int[] outLength;
+    private final boolean[] wordStart;
+    private final boolean[] wordEnd;
+
+    private Automaton(
+        Map<Long, Integer> next,
+        int[] fail,
+        int[] dict,
+        long[] out,
+        int[] outLength,
+        boolean[] wordStart,
+        boolean[] wordEnd) {
+      this.next = next;
+      this.fail = fail;
+      this.dict = dict;
+      this.out = out;
+      this.outLength = outLength;
+      this.wordStart = wordStart;
+      this.wordEnd = wordEnd;
+    }
+
+    int size() {
+      return fail.length;
+    }
+
+    static Automaton build(Map<Long, String> titles, int minTitleLength) {
+      Map<Long, Integer> next = new HashMap<>();
+      List<Long> outs = new ArrayList<>();
+      List<Integer> outLengths = new ArrayList<>();
+      List<Boolean> starts = new ArrayList<>();
+      List<Boolean> ends = new ArrayList<>();
+      List<List<Integer>> children = new ArrayList<>();
+      outs.add(-1L);
+      outLengths.add(0);
+      starts.add(false);
+      ends.add(false);
+      children.add(new ArrayList<>());
+
+      // Insert in id order so that, among titles equal ignoring case, the oldest entry wins.
+      for (Map.Entry<Long, String> e : new TreeMap<>(titles).entrySet()) {
+        String title = e.getValue() == null ? "" : e.getValue().trim();
+        if (title.length() < minTitleLength) continue;
+        int s = 0;
+        for (int i = 0; i < title.length(); i++) {
+          long key = ((long) s << 16) | Character.toLowerCase(title.charAt(i));
+          Integer t = next.get(key);
+          if (t == null) {
+            t = outs.size();
+            next.put(key, t);
+            outs.add(-1L);
+            outLengths.add(0);
+            starts.add(false);
+            ends.add(false);
+            children.add(new ArrayList<>());
+            children.get(s).add(t);
+          }
+          s = t;
+        }
+        if (outs.get(s) < 0) {
+          outs.set(s, e.getKey());
+          outLengths.set(s, title.length());
+          starts.set(s, isAsciiWordChar(title.charAt(0)));
+          ends.set(s, isAsciiWordChar(title.charAt(title.length() - 1)));
+        }
+      }
+
+      int n = outs.size();
+      Map<Integer, Character> edgeChar = new HashMap<>();
+      for (Map.Entry<Long, Integer> e : next.entrySet()) edgeChar.put(e.getValue(), (char) (e.getKey() & 0xffff));
+      int[] fail = new int[n];
+      int[] dict = new int[n];
+      List<Integer> queue = new ArrayList<>(children.get(0));
+      for (int head = 0; head < queue.size(); head++) {
+        int s = queue.get(head);
+        for (int t : children.get(s)) {
+          char c = edgeChar.get(t);
+          int f = fail[s];
+          while (f != 0 && !next.containsKey(((long) f << 16) | c)) f = fail[f];
+          Integer g = next.get(((long) f << 16) | c);
+          fail[t] = g == null || g == t ? 0 : g;
+          dict[t] = outs.get(fail[t]) >= 0 ? fail[t] : dict[fail[t]];
+          queue.add(t);
+        }
+      }
+
+      long[] out = new long[n];
+      int[] outLength = new int[n];
+      boolean[] wordStart = new boolean[n];
+      boolean[] wordEnd = new boolean[n];
+      for (int i = 0; i < n; i++) {
+        out[i] = outs.get(i);
+        outLength[i] = outLengths.get(i);
+        wordStart[i] = starts.get(i);
+        wordEnd[i] = ends.get(i);
+      }
+      return new Automaton(next, fail, dict, out, outLength, wordStart, wordEnd);
+    }
+
+    List<Link> scan(String text, int maxLinks) {
+      if (fail.length <= 1) return List.of();
+      List<Link> matches = new ArrayList<>();
+      int s = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = Character.toLowerCase(text.charAt(i));
+        while (s != 0 && !next.containsKey(((long) s << 16) | c)) s = fail[s];
+        Integer t = next.get(((long) s << 16) | c);
+        s = t == null ? 0 : t;
+        for (int o = out[s] >= 0 ? s : dict[s]; o != 0; o = dict[o]) {
+          int start = i - outLength[o] + 1;
+          if (wordStart[o] && start > 0 && isAsciiWordChar(text.charAt(start - 1))) continue;
+          if (wordEnd[o] && i + 1 < text.length() && isAsciiWordChar(text.charAt(i + 1))) continue;
+          matches.add(new Link(out[o], start, outLength[o]));
+        }
+      }
+      if (matches.isEmpty()) return List.of();
+
+      matches.sort(Comparator.<Link>comparingInt(l -> l.start).thenComparing(l -> -l.length));
+      List<Link> picked = new ArrayList<>();
+      Set<Long> linked = new HashSet<>();
+      int end = 0;
+      for (Link l : matches) {
+        if (l.start < end) continue;
+        if (!linked.add(l.entryId)) continue;
+        picked.add(l);
+        end = l.start + l.length;
+        if (picked.size() >= maxLinks) break;
+      }
+      return picked;
+    }
+
+    private static boolean isAsciiWordChar(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.chek.content.service;
+
+import com.chek.content.model.post.IngestBulkResult;
+import com.chek.content.model.post.IngestExternalPostRequest;
+import com.chek.content.repo.ExternalPostBulkRepository;
+import com.chek.content.repo.ExternalPostBulkRepository.Item;
+import com.chek.content.repo.PostRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Reads NDJSON IngestExternalPostRequest records and upserts them CHEK_INGEST_BULK_CHUNK at a time,
+// writing one IngestBulkResult line per input line (in input order) after each chunk commits.
+@Service
+public class ExternalPostBulkIngestService {
+  private static final Logger log = LoggerFactory.getLogger(ExternalPostBulkIngestService.class);
+
+  private final ExternalPostBulkRepository bulkRepository;
+  private final PostRepository postRepository;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
+  private final int chunkSize;
+
+  public ExternalPostBulkIngestService(
+      ExternalPostBulkRepository bulkRepository,
+      PostRepository postRepository,
+      ObjectMapper objectMapper,
+      Validator validator,
+      @Value("${CHEK_INGEST_BULK_CHUNK:200}") int chunkSize) {
+    this.bulkRepository = bulkRepository;
+    this.postRepository = postRepository;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.chunkSize = Math.max(1, Math.min(chunkSize, 2000));
+  }
+
+  public void ingest(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    Chunk chunk = new Chunk();
+    long lineNo = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNo++;
+      if (line.isBlank()) continue;
+      accept(chunk, lineNo, line);
+      if (chunk.items.size() + chunk.done.size() >= chunkSize) {
+        flush(chunk, out);
+        chunk = new Chunk();
+      }
+    }
+    flush(chunk, out);
+  }
+
+  private void accept(Chunk chunk, long lineNo, String line) {
+    IngestExternalPostRequest req;
+    try {
+      req = objectMapper.readValue(line, IngestExternalPostRequest.class);
+    } catch (IOException e) {
+      chunk.done.add(error(lineNo, null, null, "invalid json"));
+      return;
+    }
+    if (req == null) {
+      chunk.done.add(error(lineNo, null, null, "invalid json"));
+      return;
+    }
+    Set<ConstraintViolation<IngestExternalPostRequest>> violations = validator.validate(req);
+    String platform = req.getSourcePlatform() == null ? "" : req.getSourcePlatform().trim();
+    String sourceId = req.getSourceId() == null ? "" : req.getSourceId().trim();
+    if (!violations.isEmpty()) {
+      String msg =
+          violations.stream()
+              .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+              .sorted()
+              .collect(Collectors.joining("; "));
+      chunk.done.add(error(lineNo, platform, sourceId, msg));
+      return;
+    }
+
+    Item item = toItem(lineNo, req);
+    // The same source twice in one chunk: the later line wins.
+    Item previous = chunk.items.put(item.key(), item);
+    if (previous != null) {
+      IngestBulkResult r = IngestBulkResult.of(previous.line, platform, sourceId, "skipped");
+      r.setMessage("superseded by line " + lineNo);
+      chunk.done.add(r);
+    }
+  }
+
+  // req must already be validated.
+  public Item toItem(long line, IngestExternalPostRequest req) {
+    String platform = req.getSourcePlatform() == null ? "" : req.getSourcePlatform().trim();
+    String sourceId = req.getSourceId() == null ? "" : req.getSourceId().trim();
+    String author = req.getAuthorUserOneId() == null ? "" : req.getAuthorUserOneId().trim();
+    if (author.isBlank()) author = "投诉雷达";
+    return new Item(line, req, platform, sourceId, author);
+  }
+
+  // Upserts one chunk (keys unique) in one transaction and refreshes caches/indexes for the posts
+  // it wrote. Never throws: a failed chunk yields an error result per item.
+  public List<IngestBulkResult> write(List<Item> items) {
+    if (items.isEmpty()) return new ArrayList<>();
+    try {
+      List<IngestBulkResult> written = bulkRepository.upsertChunk(items);
+      postRepository.afterBulkUpsert(
+          written.stream()
+              .filter(r -> r.getPostId() != null && !"unchanged".equals(r.getStatus()))
+              .map(IngestBulkResult::getPostId)
+              .toList());
+      return written;
+    } catch (RuntimeException e) {
+      log.warn("bulk ingest chunk of {} failed", items.size(), e);
+      List<IngestBulkResult> out = new ArrayList<>(items.size());
+      for (Item it : items) {
+        out.add(error(it.line, it.platform, it.sourceId, "chunk failed: " + e.getClass().getSimpleName()));
+      }
+      return out;
+    }
+  }
+
+  private void flush(Chunk chunk, OutputStream out) throws IOException {
+    List<IngestBulkResult> results = new ArrayList<>(chunk.done);
+    results.addAll(write(new ArrayList<>(chunk.items.values())));
+    results.sort(Comparator.comparingLong(IngestBulkResult::getLine));
+    for (IngestBulkResult r : results) {
+      out.write(objectMapper.writeValueAsBytes(r));
+      out.write('\n');
+    }
+    out.flush();
+  }
+
+  private static IngestBulkResult error(long line, String platform, String sourceId, String message) {
+    IngestBulkResult r = IngestBulkResult.of(line, platform, sourceId, "error");
+    r.setMessage(message);
+    return r;
+  }
+
+  private static class Chunk {
+    final Map<String, Item> items = new LinkedHashMap<>();
+    final List<IngestBulkResult> done = new ArrayList<>();
+  }
+}
@@ -0,0 +1,278 @@
+package com.chek.content.service;
+
+import com.chek.content.model.post.IngestBulkResult;
+import com.chek.content.model.post.IngestExternalPostRequest;
+import com.chek.content.model.post.IngestTicketDTO;
+import com.chek.content.repo.ExternalPostBulkRepository.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// Write-behind queue for /v1/ingest/externalPosts:upsert?async=true. Accepted requests wait in a
+// bounded in-memory queue (a full queue is rejected, never blocks the request thread) and
+// CHEK_INGEST_QUEUE_WORKERS threads drain it in batches through the bulk ingest path, so a crawler
+// burst holds at most that many DB connections. The queue is sharded per worker by source key, so
+// updates of one source are applied in the order they were accepted. Ticket status is kept in
+// memory for the last CHEK_INGEST_QUEUE_TICKET_RETENTION tickets; queued work is lost if the
+// process dies.
+@Service
+public class ExternalPostIngestQueue {
+  private static final Logger log = LoggerFactory.getLogger(ExternalPostIngestQueue.class);
+
+  private final ExternalPostBulkIngestService bulkIngestService;
+  private final boolean enabled;
+  private final int workers;
+  private final int batchSize;
+  private final int ticketRetention;
+  private final long retryAfterSeconds;
+
+  private final List<BlockingQueue<Task>> queues = new ArrayList<>();
+  private final Map<String, IngestTicketDTO> tickets = new LinkedHashMap<>();
+  private final AtomicLong seq = new AtomicLong();
+  private final List<Thread> threads = new ArrayList<>();
+  private volatile boolean running;
+
+  private final Counter accepted;
+  private final Counter rejected;
+  private final Map<String, Counter> completed = new HashMap<>();
+  private final Counter completedOther;
+  private final Timer latency;
+
+  public ExternalPostIngestQueue(
+      ExternalPostBulkIngestService bulkIngestService,
+      MeterRegistry meterRegistry,
+      @Value("${CHEK_INGEST_QUEUE_ENABLED:false}") boolean enabled,
+      @Value("${CHEK_INGEST_QUEUE_CAPACITY:1000}") int capacity,
+      @Value("${CHEK_INGEST_QUEUE_WORKERS:2}") int workers,
+      @Value("${CHEK_INGEST_QUEUE_BATCH:50}") int batchSize,
+      @Value("${CHEK_INGEST_QUEUE_TICKET_RETENTION:20000}") int ticketRetention,
+      @Value("${CHEK_INGEST_QUEUE_RETRY_AFTER_SECONDS:5}") long retryAfterSeconds) {
+    this.bulkIngestService = bulkIngestService;
+    this.enabled = enabled;
+    this.workers = Math.max(1, Math.min(workers, 16));
+    int perWorker = (Math.max(1, capacity) + this.workers - 1) / this.workers;
+    for (int i = 0; i < this.workers; i++) queues.add(new ArrayBlockingQueue<>(perWorker));
+    int cap = perWorker * this.workers;
+    this.batchSize = Math.max(1, Math.min(batchSize, 2000));
+    // Never forget a ticket that may still be queued.
+    this.ticketRetention = Math.max(ticketRetention, cap + this.workers * this.batchSize);
+    this.retryAfterSeconds = Math.max(1L, retryAfterSeconds);
+
+    this.accepted = Counter.builder("chek.ingest.queue.accepted").register(meterRegistry);
+    this.rejected = Counter.builder("chek.ingest.queue.rejected").register(meterRegistry);
+    for (String status : List.of("created", "updated", "unchanged", "skipped", "error")) {
+      completed.put(status, completedCounter(meterRegistry, status));
+    }
+    this.completedOther = completedCounter(meterRegistry, "other");
+    this.latency = Timer.builder("chek.ingest.queue.latency").register(meterRegistry);
+    Gauge.builder("chek.ingest.queue.depth", this, ExternalPostIngestQueue::depth).register(meterRegistry);
+    Gauge.builder("chek.ingest.queue.lag.seconds", this, ExternalPostIngestQueue::lagSeconds)
+        .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (!enabled || running) return;
+    running = true;
+    for (int i = 0; i < workers; i++) {
+      BlockingQueue<Task> queue = queues.get(i);
+      Thread t = new Thread(() -> drain(queue), "ingest-queue-" + i);
+      t.setDaemon(true);
+      t.start();
+      threads.add(t);
+    }
+  }
+
+  // Stops accepting work and gives the workers a bounded time to finish what is queued.
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    long deadline = System.currentTimeMillis() + 10_000L;
+    for (Thread t : threads) t.join(Math.max(1L, deadline - System.currentTimeMillis()));
+    int left = depth();
+    if (left > 0) log.warn("ingest queue stopped with {} requests still queued", left);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // False before startup completes and once shutdown began.
+  public boolean isRunning() {
+    return running;
+  }
+
+  public long retryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  // req must already be validated. Returns null when the queue is full or not running.
+  public IngestTicketDTO submit(IngestExternalPostRequest req) {
+    if (!enabled || !running) return null;
+    Item item = bulkIngestService.toItem(seq.incrementAndGet(), req);
+    IngestTicketDTO ticket = new IngestTicketDTO();
+    ticket.setTicketId(UUID.randomUUID().toString());
+    ticket.setSourcePlatform(item.platform);
+    ticket.setSourceId(item.sourceId);
+    ticket.setStatus("queued");
+    ticket.setAcceptedAt(Instant.now());
+    remember(ticket);
+    if (!shard(item).offer(new Task(ticket.getTicketId(), item, System.nanoTime()))) {
+      forget(ticket.getTicketId());
+      rejected.increment();
+      return null;
+    }
+    accepted.increment();
+    return copy(ticket);
+  }
+
+  public IngestTicketDTO status(String ticketId) {
+    synchronized (tickets) {
+      IngestTicketDTO t = tickets.get(ticketId);
+      return t == null ? null : copy(t);
+    }
+  }
+
+  // One worker per shard, so two requests for the same source never run concurrently or reorder.
+  private BlockingQueue<Task> shard(Item item) {
+    return queues.get(Math.floorMod(item.key().hashCode(), queues.size()));
+  }
+
+  private void drain(BlockingQueue<Task> queue) {
+    while (running || !queue.isEmpty()) {
+      try {
+        Task first = queue.poll(500, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        List<Task> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        process(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("ingest queue worker error", e);
+      }
+    }
+  }
+
+  private void process(List<Task> batch) {
+    // The same source twice in one batch: the later request wins, as in the bulk endpoint.
+    Map<String, Task> byKey = new LinkedHashMap<>();
+    for (Task t : batch) {
+      Task previous = byKey.put(t.item.key(), t);
+      if (previous != null) {
+        Item p = previous.item;
+        IngestBulkResult r = IngestBulkResult.of(p.line, p.platform, p.sourceId, "skipped");
+        r.setMessage("superseded by ticket " + t.ticketId);
+        complete(previous, r);
+      }
+    }
+    Map<Long, Task> byLine = new HashMap<>();
+    List<Item> items = new ArrayList<>(byKey.size());
+    for (Task t : byKey.values()) {
+      byLine.put(t.item.line, t);
+      items.add(t.item);
+    }
+    for (IngestBulkResult r : bulkIngestService.write(items)) {
+      Task t = byLine.get(r.getLine());
+      if (t != null) complete(t, r);
+    }
+  }
+
+  private void complete(Task task, IngestBulkResult r) {
+    latency.record(System.nanoTime() - task.enqueuedNanos, TimeUnit.NANOSECONDS);
+    completed.getOrDefault(r.getStatus(), completedOther).increment();
+    synchronized (tickets) {
+      IngestTicketDTO t = tickets.get(task.ticketId);
+      if (t == null) return;
+      t.setStatus(r.getStatus());
+      t.setPostId(r.getPostId());
+      t.setMessage(r.getMessage());
+      t.setCompletedAt(Instant.now());
+    }
+  }
+
+  private void remember(IngestTicketDTO ticket) {
+    synchronized (tickets) {
+      tickets.put(ticket.getTicketId(), ticket);
+      Iterator<String> it = tickets.keySet().iterator();
+      while (tickets.size() > ticketRetention && it.hasNext()) {
+        it.next();
+        it.remove();
+      }
+    }
+  }
+
+  private void forget(String ticketId) {
+    synchronized (tickets) {
+      tickets.remove(ticketId);
+    }
+  }
+
+  private static Counter completedCounter(MeterRegistry meterRegistry, String status) {
+    return Counter.builder("chek.ingest.queue.completed").tag("status", status).register(meterRegistry);
+  }
+
+  private int depth() {
+    int n = 0;
+    for (BlockingQueue<Task> q : queues) n += q.size();
+    return n;
+  }
+
+  // Age of the oldest queued request across all shards.
+  private double lagSeconds() {
+    long now = System.nanoTime();
+    long oldest = 0L;
+    for (BlockingQueue<Task> q : queues) {
+      Task head = q.peek();
+      if (head != null) oldest = Math.max(oldest, now - head.enqueuedNanos);
+    }
+    return oldest / 1e9;
+  }
+
+  private static IngestTicketDTO copy(IngestTicketDTO src) {
+    IngestTicketDTO t = new IngestTicketDTO();
+    t.setTicketId(src.getTicketId());
+    t.setSourcePlatform(src.getSourcePlatform());
+    t.setSourceId(src.getSourceId());
+    t.setStatus(src.getStatus());
+    t.setPostId(src.getPostId());
+    t.setMessage(src.getMessage());
+    t.setAcceptedAt(src.getAcceptedAt());
+    t.setCompletedAt(src.getCompletedAt());
+    return t;
+  }
+
+  private static class Task {
+    final String ticketId;
+    final Item item;
+    final long enqueuedNanos;
+
+    Task(String ticketId, Item item, long enqueuedNanos) {
+      this.ticketId = ticketId;
+      this.item = item;
+      this.enqueuedNanos = enqueuedNanos;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.chek.content.service;
+
+import com.chek.content.repo.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PostExcerptBackfill {
+  private static final Logger log = LoggerFactory.getLogger(PostExcerptBackfill.class);
+
+  private final PostRepository postRepository;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public PostExcerptBackfill(
+      PostRepository postRepository,
+      @Value("${CHEK_POST_EXCERPT_BACKFILL_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_POST_EXCERPT_BACKFILL_BATCH:500}") int batchSize) {
+    this.postRepository = postRepository;
+    this.enabled = enabled;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    if (!enabled) return;
+    try {
+      backfillAll();
+    } catch (Exception e) {
+      log.warn("post excerpt backfill failed", e);
+    }
+  }
+
+  public int backfillAll() {
+    long cursor = 0L;
+    int batches = 0;
+    while (true) {
+      long last = postRepository.backfillExcerpts(cursor, batchSize);
+      if (last < 0) break;
+      batches++;
+      cursor = last;
+    }
+    if (batches > 0) log.info("post excerpt backfill done up to post {}", cursor);
+    return batches;
+  }
+}
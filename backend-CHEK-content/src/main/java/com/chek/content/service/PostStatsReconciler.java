@@ -0,0 +1,52 @@
+package com.chek.content.service;
+
+import com.chek.content.repo.PostStatsRepository;
+import com.chek.content.repo.PostStatsRepository.ReconcileResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PostStatsReconciler {
+  private static final Logger log = LoggerFactory.getLogger(PostStatsReconciler.class);
+
+  private final PostStatsRepository postStatsRepository;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public PostStatsReconciler(
+      PostStatsRepository postStatsRepository,
+      @Value("${CHEK_POST_STATS_RECONCILE_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_POST_STATS_RECONCILE_BATCH:500}") int batchSize) {
+    this.postStatsRepository = postStatsRepository;
+    this.enabled = enabled;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_POST_STATS_RECONCILE_INITIAL_DELAY_MS:300000}",
+      fixedDelayString = "${CHEK_POST_STATS_RECONCILE_INTERVAL_MS:21600000}")
+  public void scheduledReconcile() {
+    if (!enabled) return;
+    try {
+      reconcileAll();
+    } catch (Exception e) {
+      log.warn("post stats reconcile failed", e);
+    }
+  }
+
+  public int reconcileAll() {
+    long cursor = 0L;
+    int fixed = 0;
+    while (true) {
+      ReconcileResult r = postStatsRepository.reconcileBatch(cursor, batchSize);
+      if (r.lastPostId < 0) break;
+      fixed += r.fixed;
+      cursor = r.lastPostId;
+    }
+    if (fixed > 0) log.info("post stats reconcile fixed {} drifted rows", fixed);
+    return fixed;
+  }
+}
@@ -0,0 +1,102 @@
+package com.chek.content.service;
+
+import com.chek.content.repo.SocialRepository;
+import com.chek.content.repo.SocialWriteBuffer;
+import com.chek.content.repo.SocialWriteBuffer.PostToggles;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// Drains SocialWriteBuffer every CHEK_SOCIAL_WRITE_BEHIND_FLUSH_INTERVAL_MS on its own thread, one
+// transaction per stripe. A stripe whose flush fails keeps its entries and is retried on the next
+// round. On shutdown the buffer is closed (new toggles write through) and drained before the
+// DataSource goes away; toggles still buffered if the process is killed are lost.
+@Service
+public class SocialWriteBehindFlusher {
+  private static final Logger log = LoggerFactory.getLogger(SocialWriteBehindFlusher.class);
+  private static final int SHUTDOWN_ATTEMPTS = 3;
+
+  private final SocialWriteBuffer socialWriteBuffer;
+  private final SocialRepository socialRepository;
+  private final long intervalMs;
+
+  private final Object wakeup = new Object();
+  private Thread thread;
+  private volatile boolean running;
+
+  public SocialWriteBehindFlusher(
+      SocialWriteBuffer socialWriteBuffer,
+      SocialRepository socialRepository,
+      MeterRegistry meterRegistry,
+      @Value("${CHEK_SOCIAL_WRITE_BEHIND_FLUSH_INTERVAL_MS:250}") long intervalMs) {
+    this.socialWriteBuffer = socialWriteBuffer;
+    this.socialRepository = socialRepository;
+    this.intervalMs = Math.max(10L, intervalMs);
+    Gauge.builder("chek.social.write_behind.pending", socialWriteBuffer, SocialWriteBuffer::size)
+        .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    if (!socialWriteBuffer.isEnabled() || running) return;
+    running = true;
+    thread = new Thread(this::run, "social-write-behind");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (!socialWriteBuffer.isEnabled()) return;
+    socialWriteBuffer.close();
+    running = false;
+    synchronized (wakeup) {
+      wakeup.notifyAll();
+    }
+    if (thread != null) thread.join(10_000L);
+    int buffered = socialWriteBuffer.size();
+    for (int i = 0; i < SHUTDOWN_ATTEMPTS && socialWriteBuffer.size() > 0; i++) flushAll();
+    if (buffered > 0) log.info("social write-behind: flushed {} buffered toggles on shutdown", buffered - socialWriteBuffer.size());
+    if (socialWriteBuffer.size() > 0) {
+      log.warn("social write-behind stopped with {} toggles not written", socialWriteBuffer.size());
+    }
+  }
+
+  private void run() {
+    while (running) {
+      synchronized (wakeup) {
+        try {
+          wakeup.wait(intervalMs);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      if (!running) return;
+      flushAll();
+    }
+  }
+
+  // Returns the number of stripes that failed.
+  public synchronized int flushAll() {
+    int failed = 0;
+    for (int i = 0; i < socialWriteBuffer.stripeCount(); i++) {
+      Map<Long, PostToggles> toggles = socialWriteBuffer.take(i);
+      if (toggles.isEmpty()) continue;
+      try {
+        socialRepository.flushToggles(toggles);
+        socialWriteBuffer.complete(i);
+      } catch (Exception e) {
+        failed++;
+        log.warn("social write-behind flush failed, will retry", e);
+      }
+    }
+    return failed;
+  }
+}
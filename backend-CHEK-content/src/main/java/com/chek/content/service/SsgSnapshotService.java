@@ -0,0 +1,302 @@
+package com.chek.content.service;
+
+import com.chek.content.model.ssg.SnapshotManifestDTO;
+import com.chek.content.model.ssg.SnapshotSegmentDTO;
+import com.chek.content.model.tag.TagDTO;
+import com.chek.content.repo.ChangeLogRepository;
+import com.chek.content.repo.SsgExportRepository;
+import com.chek.content.repo.TagRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Periodically writes the public corpus to CHEK_SSG_SNAPSHOT_DIR as gzipped NDJSON segments of at
+// most CHEK_SSG_SNAPSHOT_SEGMENT_ROWS rows, named by the SHA-256 of their bytes, plus a manifest
+// listing them. Java's gzip output is deterministic, so segments whose rows did not change keep
+// their name across snapshots and stay cached downstream. The last CHEK_SSG_SNAPSHOT_KEEP manifests
+// and their segments are kept on disk so in-flight downloads of an older snapshot still complete.
+@Service
+public class SsgSnapshotService {
+  private static final Logger log = LoggerFactory.getLogger(SsgSnapshotService.class);
+  private static final Pattern SEGMENT_NAME = Pattern.compile("(posts|wiki|tags)-[0-9a-f]{64}\\.ndjson\\.gz");
+  private static final Pattern MANIFEST_NAME = Pattern.compile("manifest-[0-9a-f]{64}\\.json");
+  private static final String LATEST = "latest.json";
+  private static final int TAG_PAGE = 500;
+
+  private final SsgExportRepository ssgExportRepository;
+  private final TagRepository tagRepository;
+  private final ChangeLogRepository changeLogRepository;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final Path dir;
+  private final int segmentRows;
+  private final int keep;
+
+  private final AtomicReference<Snapshot> current = new AtomicReference<>();
+  private final ReentrantLock building = new ReentrantLock();
+
+  public SsgSnapshotService(
+      SsgExportRepository ssgExportRepository,
+      TagRepository tagRepository,
+      ChangeLogRepository changeLogRepository,
+      ObjectMapper objectMapper,
+      @Value("${CHEK_SSG_SNAPSHOT_ENABLED:false}") boolean enabled,
+      @Value("${CHEK_SSG_SNAPSHOT_DIR:./ssg-snapshots}") String dir,
+      @Value("${CHEK_SSG_SNAPSHOT_SEGMENT_ROWS:5000}") int segmentRows,
+      @Value("${CHEK_SSG_SNAPSHOT_KEEP:3}") int keep) {
+    this.ssgExportRepository = ssgExportRepository;
+    this.tagRepository = tagRepository;
+    this.changeLogRepository = changeLogRepository;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.dir = Paths.get(dir).toAbsolutePath().normalize();
+    this.segmentRows = Math.max(1, segmentRows);
+    this.keep = Math.max(1, keep);
+  }
+
+  public static class Snapshot {
+    public final SnapshotManifestDTO manifest;
+    public final String sha256;
+
+    Snapshot(SnapshotManifestDTO manifest, String sha256) {
+      this.manifest = manifest;
+      this.sha256 = sha256;
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    if (!enabled) return;
+    try {
+      Path latest = dir.resolve(LATEST);
+      if (Files.exists(latest)) {
+        byte[] json = Files.readAllBytes(latest);
+        current.set(new Snapshot(objectMapper.readValue(json, SnapshotManifestDTO.class), sha256Hex(json)));
+      }
+    } catch (IOException e) {
+      log.warn("ssg snapshot: failed to load {}", dir.resolve(LATEST), e);
+    }
+  }
+
+  @Scheduled(
+      initialDelayString = "${CHEK_SSG_SNAPSHOT_INITIAL_DELAY_MS:60000}",
+      fixedDelayString = "${CHEK_SSG_SNAPSHOT_INTERVAL_MS:900000}")
+  public void scheduledBuild() {
+    if (!enabled) return;
+    try {
+      build();
+    } catch (Exception e) {
+      log.warn("ssg snapshot build failed", e);
+    }
+  }
+
+  public Snapshot current() {
+    return enabled ? current.get() : null;
+  }
+
+  // The segment or manifest file for a name from a manifest, or null for anything else.
+  public Path resolveFile(String name) {
+    if (!enabled || name == null) return null;
+    if (!SEGMENT_NAME.matcher(name).matches() && !MANIFEST_NAME.matcher(name).matches()) return null;
+    Path path = dir.resolve(name);
+    return Files.isRegularFile(path) ? path : null;
+  }
+
+  // The content hash embedded in a file name accepted by resolveFile.
+  public static String sha256Of(String name) {
+    int dash = name.indexOf('-');
+    return name.substring(dash + 1, dash + 65);
+  }
+
+  public Snapshot build() throws IOException {
+    if (!building.tryLock()) return current.get();
+    try {
+      long started = System.currentTimeMillis();
+      Files.createDirectories(dir);
+      long seq = changeLogRepository.settledSeq();
+      List<SnapshotSegmentDTO> segments = new ArrayList<>();
+
+      try (SegmentWriter w = new SegmentWriter("posts", segments)) {
+        ssgExportRepository.streamPosts(null, 0L, w::write);
+      }
+      try (SegmentWriter w = new SegmentWriter("wiki", segments)) {
+        ssgExportRepository.streamWiki(null, 0L, w::write);
+      }
+      try (SegmentWriter w = new SegmentWriter("tags", segments)) {
+        Long cursor = null;
+        while (true) {
+          List<TagDTO> page = tagRepository.listForSsg(null, cursor, TAG_PAGE);
+          if (page.isEmpty()) break;
+          w.write(page);
+          cursor = page.get(page.size() - 1).getTagId();
+        }
+      }
+
+      SnapshotManifestDTO manifest = new SnapshotManifestDTO();
+      manifest.setGeneratedAt(Instant.now());
+      manifest.setChangeLogSeq(seq);
+      manifest.setSegments(segments);
+      byte[] json = objectMapper.writeValueAsBytes(manifest);
+      String sha = sha256Hex(json);
+      writeAtomically(dir.resolve("manifest-" + sha + ".json"), json);
+      writeAtomically(dir.resolve(LATEST), json);
+      Snapshot snapshot = new Snapshot(manifest, sha);
+      current.set(snapshot);
+      prune();
+      log.info(
+          "ssg snapshot: {} segments, {} rows in {} ms",
+          segments.size(),
+          segments.stream().mapToLong(SnapshotSegmentDTO::getRows).sum(),
+          System.currentTimeMillis() - started);
+      return snapshot;
+    } finally {
+      building.unlock();
+    }
+  }
+
+  // Drops manifests beyond the newest `keep`, segments none of the kept manifests reference, and
+  // temp files left by an interrupted build.
+  private void prune() throws IOException {
+    List<Path> manifests = new ArrayList<>();
+    List<Path> others = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+      for (Path p : ds) {
+        String name = p.getFileName().toString();
+        if (MANIFEST_NAME.matcher(name).matches()) {
+          manifests.add(p);
+        } else if (SEGMENT_NAME.matcher(name).matches() || name.startsWith(".tmp-")) {
+          others.add(p);
+        }
+      }
+    }
+    manifests.sort(Comparator.comparing(SsgSnapshotService::lastModified).reversed());
+    Set<String> referenced = new HashSet<>();
+    for (int i = 0; i < manifests.size(); i++) {
+      Path p = manifests.get(i);
+      if (i >= keep) {
+        Files.deleteIfExists(p);
+        continue;
+      }
+      SnapshotManifestDTO m = objectMapper.readValue(p.toFile(), SnapshotManifestDTO.class);
+      for (SnapshotSegmentDTO s : m.getSegments()) referenced.add(s.getFile());
+    }
+    long staleBefore = System.currentTimeMillis() - 3_600_000L;
+    for (Path p : others) {
+      String name = p.getFileName().toString();
+      boolean stale = name.startsWith(".tmp-") ? lastModified(p) < staleBefore : !referenced.contains(name);
+      if (stale) Files.deleteIfExists(p);
+    }
+  }
+
+  private void writeAtomically(Path target, byte[] bytes) throws IOException {
+    Path tmp = dir.resolve(".tmp-" + UUID.randomUUID());
+    Files.write(tmp, bytes);
+    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static long lastModified(Path p) {
+    try {
+      return Files.getLastModifiedTime(p).toMillis();
+    } catch (IOException e) {
+      return 0L;
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String sha256Hex(byte[] bytes) {
+    return HexFormat.of().formatHex(sha256().digest(bytes));
+  }
+
+  // Splits one kind's rows into segments; each is hashed over its gzipped bytes while written.
+  private class SegmentWriter implements AutoCloseable {
+    private final String kind;
+    private final List<SnapshotSegmentDTO> out;
+    private Path tmp;
+    private MessageDigest digest;
+    private OutputStream stream;
+    private long rows;
+
+    SegmentWriter(String kind, List<SnapshotSegmentDTO> out) {
+      this.kind = kind;
+      this.out = out;
+    }
+
+    void write(List<?> batch) throws IOException {
+      for (Object dto : batch) {
+        if (stream == null) open();
+        stream.write(objectMapper.writeValueAsBytes(dto));
+        stream.write('\n');
+        if (++rows >= segmentRows) finish();
+      }
+    }
+
+    private void open() throws IOException {
+      tmp = dir.resolve(".tmp-" + UUID.randomUUID());
+      digest = sha256();
+      OutputStream file = new DigestOutputStream(Files.newOutputStream(tmp), digest);
+      stream = new GZIPOutputStream(new BufferedOutputStream(file, 64 * 1024), 64 * 1024);
+      rows = 0;
+    }
+
+    private void finish() throws IOException {
+      if (stream == null) return;
+      stream.close();
+      stream = null;
+      String sha = HexFormat.of().formatHex(digest.digest());
+      String name = kind + "-" + sha + ".ndjson.gz";
+      Path target = dir.resolve(name);
+      if (Files.exists(target)) {
+        Files.delete(tmp);
+      } else {
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+      }
+      SnapshotSegmentDTO s = new SnapshotSegmentDTO();
+      s.setKind(kind);
+      s.setFile(name);
+      s.setSha256(sha);
+      s.setRows(rows);
+      s.setBytes(Files.size(target));
+      out.add(s);
+    }
+
+    @Override
+    public void close() throws IOException {
+      finish();
+    }
+  }
+}
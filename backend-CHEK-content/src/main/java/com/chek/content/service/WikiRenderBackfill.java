@@ -0,0 +1,50 @@
+package com.chek.content.service;
+
+import com.chek.content.repo.WikiRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+@Service
+public class WikiRenderBackfill {
+  private static final Logger log = LoggerFactory.getLogger(WikiRenderBackfill.class);
+
+  private final WikiRepository wikiRepository;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public WikiRenderBackfill(
+      WikiRepository wikiRepository,
+      @Value("${CHEK_WIKI_RENDER_BACKFILL_ENABLED:true}") boolean enabled,
+      @Value("${CHEK_WIKI_RENDER_BACKFILL_BATCH:200}") int batchSize) {
+    this.wikiRepository = wikiRepository;
+    this.enabled = enabled;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    if (!enabled) return;
+    try {
+      backfillAll();
+    } catch (Exception e) {
+      log.warn("wiki render backfill failed", e);
+    }
+  }
+
+  public int backfillAll() {
+    long cursor = 0L;
+    int batches = 0;
+    while (true) {
+      long last = wikiRepository.backfillRenderings(cursor, batchSize);
+      if (last < 0) break;
+      batches++;
+      cursor = last;
+    }
+    if (batches > 0) log.info("wiki render backfill done up to entry {}", cursor);
+    return batches;
+  }
+}
@@ -0,0 +1,3 @@
+-- CHEK Content Service: content hash of ingested external posts, to skip unchanged re-ingests
+
+ALTER TABLE chek_content_post ADD COLUMN content_hash CHAR(64) NULL;
@@ -0,0 +1,11 @@
+-- CHEK Content Service: append-only change log for incremental SSG builds (/v1/public/ssg/changes)
+
+CREATE TABLE IF NOT EXISTS chek_content_change_log (
+  seq BIGINT PRIMARY KEY AUTO_INCREMENT,
+  entity_type VARCHAR(16) NOT NULL,
+  entity_id BIGINT NOT NULL,
+  change_type VARCHAR(16) NOT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_change_log_created ON chek_content_change_log(created_at);
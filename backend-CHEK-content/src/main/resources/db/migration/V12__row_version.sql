@@ -0,0 +1,5 @@
+-- CHEK Content Service: per-row write counters for conditional GET validators (updated_at has
+-- second precision, so two writes within one second would otherwise share an ETag)
+
+ALTER TABLE chek_content_post ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE chek_content_wiki_entry ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+-- CHEK Content Service: wiki body rendered to sanitized HTML at write time, plus its section index
+
+ALTER TABLE chek_content_wiki_entry ADD COLUMN body_html MEDIUMTEXT NULL;
+ALTER TABLE chek_content_wiki_entry ADD COLUMN sections_json TEXT NULL;
@@ -0,0 +1,11 @@
+-- CHEK Content Service: wiki titles mentioned in post bodies (found by WikiTitleLinker at write time)
+
+CREATE TABLE IF NOT EXISTS chek_content_post_wiki_link (
+  post_id BIGINT NOT NULL,
+  start_offset INT NOT NULL,
+  span_length INT NOT NULL,
+  entry_id BIGINT NOT NULL,
+  PRIMARY KEY (post_id, start_offset)
+);
+
+CREATE INDEX idx_post_wiki_link_entry ON chek_content_post_wiki_link(entry_id);
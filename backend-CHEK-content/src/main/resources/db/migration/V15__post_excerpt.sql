@@ -0,0 +1,5 @@
+-- CHEK Content Service: stored feed preview of each post (fields=summary list projection)
+
+ALTER TABLE chek_content_post ADD COLUMN excerpt VARCHAR(512) NULL;
+ALTER TABLE chek_content_post ADD COLUMN text_length INT NULL;
+ALTER TABLE chek_content_post ADD COLUMN first_image_url VARCHAR(1024) NULL;
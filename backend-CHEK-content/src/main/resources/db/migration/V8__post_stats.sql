@@ -0,0 +1,17 @@
+-- CHEK Content Service: denormalized per-post counters (replaces correlated COUNT subqueries)
+
+CREATE TABLE IF NOT EXISTS chek_content_post_stats (
+  post_id BIGINT PRIMARY KEY,
+  comment_count BIGINT NOT NULL DEFAULT 0,
+  like_count BIGINT NOT NULL DEFAULT 0,
+  favorite_count BIGINT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO chek_content_post_stats(post_id, comment_count, like_count, favorite_count, updated_at)
+SELECT p.id,
+  (SELECT COUNT(1) FROM chek_content_comment c WHERE c.post_id = p.id),
+  (SELECT COUNT(1) FROM chek_content_post_like l WHERE l.post_id = p.id),
+  (SELECT COUNT(1) FROM chek_content_post_favorite f WHERE f.post_id = p.id),
+  CURRENT_TIMESTAMP
+FROM chek_content_post p;
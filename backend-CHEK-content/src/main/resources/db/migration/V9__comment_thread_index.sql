@@ -0,0 +1,6 @@
+-- CHEK Content Service: comment thread indexes
+-- (post_id, id) serves the flat id-ordered listing; (post_id, parent_comment_id, id) serves
+-- top-level pages, per-parent reply windows and reply counts.
+
+CREATE INDEX idx_comment_post ON chek_content_comment(post_id, id);
+CREATE INDEX idx_comment_post_parent ON chek_content_comment(post_id, parent_comment_id, id);